@@ -3,10 +3,59 @@ package org.politechnika.algorithm;
 import org.politechnika.model.Instance;
 import org.politechnika.model.Solution;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 
 public interface Algorithm {
 
     Solution solve(Instance instance, int startNode);
 
     String getName();
+
+    /**
+     * Whether {@link #solveAll} runs the start nodes in parallel. Algorithms that keep no state
+     * between calls override this, see {@link #solveAllParallel}.
+     */
+    default boolean solvesAllInParallel() {
+        return false;
+    }
+
+    // solutions in start node order, sequential runs are timed one by one
+    default List<Solution> solveAll(Instance instance, int[] startNodes) {
+        if (solvesAllInParallel()) {
+            return solveAllParallel(this, instance, startNodes);
+        }
+        List<Solution> solutions = new ArrayList<>(startNodes.length);
+        for (int startNode : startNodes) {
+            solutions.add(solveTimed(this, instance, startNode));
+        }
+        return solutions;
+    }
+
+    /**
+     * Runs the start nodes on the common ForkJoin pool. Runs competing for the pool would report
+     * inflated times, so every solution gets the batch wall time divided by the number of runs.
+     */
+    static List<Solution> solveAllParallel(Algorithm algorithm, Instance instance, int[] startNodes) {
+        long startTime = System.nanoTime();
+        List<Solution> solutions = Arrays.stream(startNodes).parallel()
+                .mapToObj(startNode -> algorithm.solve(instance, startNode))
+                .toList();
+        if (solutions.isEmpty()) {
+            return solutions;
+        }
+        long executionTimeMs = (System.nanoTime() - startTime) / 1_000_000 / solutions.size();
+        return solutions.stream()
+                .map(solution -> solution.withExecutionTime(executionTimeMs))
+                .toList();
+    }
+
+    private static Solution solveTimed(Algorithm algorithm, Instance instance, int startNode) {
+        long startTime = System.nanoTime();
+        Solution solution = algorithm.solve(instance, startNode);
+        long executionTimeMs = (System.nanoTime() - startTime) / 1_000_000;
+        return solution.withExecutionTime(executionTimeMs);
+    }
 }
@@ -0,0 +1,147 @@
+package org.politechnika.algorithm;
+
+import org.politechnika.model.Instance;
+import org.politechnika.model.Tour;
+
+import java.util.BitSet;
+import java.util.Random;
+
+
+/**
+ * Recombination that keeps the maximal runs of edges common to both parents and the common nodes,
+ * fills the child with random other nodes and joins the pieces in random order and direction. Edges
+ * are looked up through the positions the parents keep, so a recombination costs O(n); buffers are
+ * reused, so an instance must not be shared between threads.
+ */
+class CommonEdgeRecombination {
+    private final Instance instance;
+    private final int nodesToSelect;
+    private final BitSet used;
+    // pieces as ranges of a flat node array
+    private final int[] pieceNodes;
+    private final int[] pieceStart;
+    private final int[] pieceLength;
+    private final int[] pieceOrder;
+    private final int[] available;
+    private final int[] child;
+
+    CommonEdgeRecombination(Instance instance) {
+        int totalNodes = instance.getTotalNodes();
+        this.instance = instance;
+        this.nodesToSelect = instance.getNodesToSelect();
+        this.used = new BitSet(totalNodes);
+        this.pieceNodes = new int[totalNodes];
+        this.pieceStart = new int[totalNodes];
+        this.pieceLength = new int[totalNodes];
+        this.pieceOrder = new int[totalNodes];
+        this.available = new int[totalNodes];
+        this.child = new int[totalNodes];
+    }
+
+    Tour recombine(Tour parent1, Tour parent2, Random random) {
+        used.clear();
+        int size = parent1.size();
+        int pieces = 0;
+        int nodeCount = 0;
+        long objectiveValue = 0;
+
+        // a run starts after an edge that is not common, without such an edge the parents are the same cycle
+        int first = -1;
+        for (int i = 0; i < size && first < 0; i++) {
+            if (!isCommonEdge(parent1, parent2, parent1.prevIndex(i))) {
+                first = i;
+            }
+        }
+        boolean sameCycle = first < 0;
+        if (sameCycle) {
+            first = 0;
+        }
+
+        for (int k = 0; k < size; k++) {
+            int i = (first + k) % size;
+            int nodeId = parent1.getNodeAt(i);
+            if (!parent2.contains(nodeId)) {
+                continue;
+            }
+            boolean continuesRun = k > 0 && (sameCycle || isCommonEdge(parent1, parent2, parent1.prevIndex(i)));
+            if (continuesRun) {
+                objectiveValue += instance.getDistance(pieceNodes[nodeCount - 1], nodeId);
+                pieceLength[pieces - 1]++;
+            } else {
+                pieceStart[pieces] = nodeCount;
+                pieceLength[pieces] = 1;
+                pieces++;
+            }
+            pieceNodes[nodeCount++] = nodeId;
+            objectiveValue += instance.getCost(nodeId);
+            used.set(nodeId);
+        }
+
+        int availableCount = 0;
+        for (int nodeId = used.nextClearBit(0); nodeId < instance.getTotalNodes(); nodeId = used.nextClearBit(nodeId + 1)) {
+            available[availableCount++] = nodeId;
+        }
+        shuffle(available, availableCount, random);
+
+        int nodesToAdd = nodesToSelect - nodeCount;
+        for (int i = 0; i < nodesToAdd && i < availableCount; i++) {
+            int nodeId = available[i];
+            pieceStart[pieces] = nodeCount;
+            pieceLength[pieces] = 1;
+            pieces++;
+            pieceNodes[nodeCount++] = nodeId;
+            objectiveValue += instance.getCost(nodeId);
+        }
+
+        return join(pieces, objectiveValue, random);
+    }
+
+    // whether the edge from index i of the first parent to its successor is also in the second
+    static boolean isCommonEdge(Tour parent1, Tour parent2, int i) {
+        int from = parent1.getNodeAt(i);
+        int to = parent1.nextNode(i);
+        int index = parent2.positionOf(from);
+        return index >= 0 && (parent2.nextNode(index) == to || parent2.prevNode(index) == to);
+    }
+
+    // pieces in random order, each reversed with probability 1/2
+    private Tour join(int pieces, long objectiveValue, Random random) {
+        for (int p = 0; p < pieces; p++) {
+            pieceOrder[p] = p;
+        }
+        shuffle(pieceOrder, pieces, random);
+
+        int count = 0;
+        for (int p = 0; p < pieces; p++) {
+            int piece = pieceOrder[p];
+            int start = pieceStart[piece];
+            int length = pieceLength[piece];
+            boolean reversed = random.nextBoolean();
+            int head = pieceNodes[reversed ? start + length - 1 : start];
+            if (count > 0) {
+                objectiveValue += instance.getDistance(child[count - 1], head);
+            }
+            for (int j = 0; j < length; j++) {
+                child[count++] = pieceNodes[reversed ? start + length - 1 - j : start + j];
+            }
+        }
+        if (count > 0) {
+            objectiveValue += instance.getDistance(child[count - 1], child[0]);
+        }
+
+        Tour tour = new Tour(instance.getTotalNodes());
+        tour.assign(child, count);
+        tour.setObjectiveValue(objectiveValue);
+        return tour;
+    }
+
+    // draws like Collections.shuffle
+    private static void shuffle(int[] values, int count, Random random) {
+        for (int i = count; i > 1; i--) {
+            int j = random.nextInt(i);
+            int tmp = values[i - 1];
+            values[i - 1] = values[j];
+            values[j] = tmp;
+        }
+    }
+}
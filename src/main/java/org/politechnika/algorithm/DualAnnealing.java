@@ -3,9 +3,10 @@ package org.politechnika.algorithm;
 import org.politechnika.algorithm.local_search.LocalSearchLM;
 import org.politechnika.model.Instance;
 import org.politechnika.model.Solution;
+import org.politechnika.model.Tour;
 import org.politechnika.util.ObjectiveFunction;
 
-import java.util.*;
+import java.util.Random;
 
 public class DualAnnealing implements Algorithm {
     
@@ -47,14 +48,20 @@ public class DualAnnealing implements Algorithm {
         restarts = 0;
         acceptedMoves = 0;
 
-        Solution currentSolution = generateRandomSolution(instance, random);
+        LocalSearchLM localSearch = new LocalSearchLM(new RandomSolution(seed));
+        int[] outsideNodes = new int[instance.getTotalNodes()];
+
+        Tour currentTour = new Tour(instance.getTotalNodes());
+        generateRandomSolution(currentTour, instance, random);
 
         if (useLocalSearch) {
-            currentSolution = applyLocalSearch(currentSolution, instance);
+            localSearch.improve(currentTour, instance);
         }
         
-        Solution bestSolution = currentSolution;
-        Solution localBest = currentSolution;
+        Tour bestTour = new Tour(currentTour);
+        Tour localBest = new Tour(currentTour);
+        Tour neighbor = new Tour(currentTour);
+        Tour refined = new Tour(currentTour);
 
         double temperature = initialTemp;
         double minTemp = initialTemp * restartTempRatio;
@@ -63,27 +70,31 @@ public class DualAnnealing implements Algorithm {
         while (System.currentTimeMillis() - startTime < timeLimitMs) {
             totalIterations++;
 
-            Solution neighbor = generateNeighbor(currentSolution, instance, random, temperature);
+            neighbor.copyFrom(currentTour);
+            generateNeighbor(neighbor, instance, random, outsideNodes);
 
-            double delta = neighbor.getObjectiveValue() - currentSolution.getObjectiveValue();
+            double delta = neighbor.getObjectiveValue() - currentTour.getObjectiveValue();
 
             if (delta < 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
-                currentSolution = neighbor;
+                Tour previous = currentTour;
+                currentTour = neighbor;
+                neighbor = previous;
                 acceptedMoves++;
 
-                if (currentSolution.getObjectiveValue() < localBest.getObjectiveValue()) {
-                    localBest = currentSolution;
+                if (currentTour.getObjectiveValue() < localBest.getObjectiveValue()) {
+                    localBest.copyFrom(currentTour);
                     iterWithoutImprovement = 0;
 
-                    if (localBest.getObjectiveValue() < bestSolution.getObjectiveValue()) {
-                        bestSolution = localBest;
+                    if (localBest.getObjectiveValue() < bestTour.getObjectiveValue()) {
+                        bestTour.copyFrom(localBest);
 
                         if (useLocalSearch) {
-                            Solution refined = applyLocalSearch(bestSolution, instance);
-                            if (refined.getObjectiveValue() < bestSolution.getObjectiveValue()) {
-                                bestSolution = refined;
-                                localBest = refined;
-                                currentSolution = refined;
+                            refined.copyFrom(bestTour);
+                            localSearch.improve(refined, instance);
+                            if (refined.getObjectiveValue() < bestTour.getObjectiveValue()) {
+                                bestTour.copyFrom(refined);
+                                localBest.copyFrom(refined);
+                                currentTour.copyFrom(refined);
                             }
                         }
                     }
@@ -115,40 +126,36 @@ public class DualAnnealing implements Algorithm {
                 // Restart from a new random solution or perturbed best
                 if (random.nextDouble() < 0.5) {
                     // Restart from random solution
-                    currentSolution = generateRandomSolution(instance, random);
+                    generateRandomSolution(currentTour, instance, random);
                 } else {
                     // Restart from perturbed best solution
-                    currentSolution = perturbSolution(bestSolution, instance, random);
+                    currentTour.copyFrom(bestTour);
+                    perturbSolution(currentTour, instance, random, outsideNodes);
                 }
                 
                 if (useLocalSearch) {
-                    currentSolution = applyLocalSearch(currentSolution, instance);
+                    localSearch.improve(currentTour, instance);
                 }
                 
-                localBest = currentSolution;
+                localBest.copyFrom(currentTour);
                 
-                if (currentSolution.getObjectiveValue() < bestSolution.getObjectiveValue()) {
-                    bestSolution = currentSolution;
+                if (currentTour.getObjectiveValue() < bestTour.getObjectiveValue()) {
+                    bestTour.copyFrom(currentTour);
                 }
             }
         }
 
         // Final local search on best solution
         if (useLocalSearch) {
-            Solution finalRefined = applyLocalSearch(bestSolution, instance);
-            if (finalRefined.getObjectiveValue() < bestSolution.getObjectiveValue()) {
-                bestSolution = finalRefined;
+            refined.copyFrom(bestTour);
+            localSearch.improve(refined, instance);
+            if (refined.getObjectiveValue() < bestTour.getObjectiveValue()) {
+                bestTour.copyFrom(refined);
             }
         }
 
         long executionTime = System.currentTimeMillis() - startTime;
-        return new Solution(
-            bestSolution.getNodeIds(),
-            bestSolution.getObjectiveValue(),
-            getName(),
-            startNode,
-            executionTime
-        );
+        return bestTour.toSolution(getName(), startNode, executionTime);
     }
 
     private double cool(double temperature, int iteration) {
@@ -158,113 +165,86 @@ public class DualAnnealing implements Algorithm {
         return temperature * alpha;
     }
 
-    private Solution generateRandomSolution(Instance instance, Random random) {
+    private void generateRandomSolution(Tour tour, Instance instance, Random random) {
         int nodesToSelect = instance.getNodesToSelect();
         int totalNodes = instance.getTotalNodes();
         
-        List<Integer> allNodes = new ArrayList<>();
+        int[] allNodes = new int[totalNodes];
         for (int i = 0; i < totalNodes; i++) {
-            allNodes.add(i);
+            allNodes[i] = i;
+        }
+        // Same draw sequence as Collections.shuffle
+        for (int i = totalNodes; i > 1; i--) {
+            int j = random.nextInt(i);
+            int tmp = allNodes[i - 1];
+            allNodes[i - 1] = allNodes[j];
+            allNodes[j] = tmp;
         }
-        Collections.shuffle(allNodes, random);
-        
-        List<Integer> selectedNodes = new ArrayList<>(allNodes.subList(0, nodesToSelect));
-        double objective = ObjectiveFunction.calculate(instance, selectedNodes);
         
-        return new Solution(selectedNodes, objective, "DualAnnealing", selectedNodes.get(0));
+        tour.assign(allNodes, nodesToSelect);
+        tour.setObjectiveValue(ObjectiveFunction.calculate(instance, tour));
     }
 
-    private Solution generateNeighbor(Solution current, Instance instance, Random random, double temperature) {
-        List<Integer> nodes = current.getNodeIds();
-        int size = nodes.size();
+    private void generateNeighbor(Tour tour, Instance instance, Random random, int[] outsideNodes) {
+        int size = tour.size();
         
-        // Choose move type based on temperature (more diverse moves at high temp)
+        // Choose move type
         double moveSelector = random.nextDouble();
-        double tempRatio = temperature / initialTemp;
-        
-        List<Integer> newNodes;
         
         if (moveSelector < 0.4) {
             // Move 1: Swap two nodes in the tour (2-opt style)
-            newNodes = new ArrayList<>(nodes);
             int i = random.nextInt(size);
             int j = random.nextInt(size);
             while (j == i) j = random.nextInt(size);
-            Collections.swap(newNodes, i, j);
+            tour.swap(i, j);
             
         } else if (moveSelector < 0.7) {
             // Move 2: Reverse a segment (2-opt)
-            newNodes = new ArrayList<>(nodes);
             int i = random.nextInt(size);
             int j = random.nextInt(size);
             if (i > j) { int tmp = i; i = j; j = tmp; }
-            Collections.reverse(newNodes.subList(i, j + 1));
+            tour.reverse(i, j);
             
         } else if (moveSelector < 0.85) {
             // Move 3: Replace a node with an outside node
-            newNodes = new ArrayList<>(nodes);
-            Set<Integer> usedNodes = new HashSet<>(nodes);
-            
-            List<Integer> outsideNodes = new ArrayList<>();
+            int outsideCount = 0;
             for (int n = 0; n < instance.getTotalNodes(); n++) {
-                if (!usedNodes.contains(n)) {
-                    outsideNodes.add(n);
+                if (!tour.contains(n)) {
+                    outsideNodes[outsideCount++] = n;
                 }
             }
             
-            if (!outsideNodes.isEmpty()) {
+            if (outsideCount > 0) {
                 int replaceIdx = random.nextInt(size);
-                int newNode = outsideNodes.get(random.nextInt(outsideNodes.size()));
-                newNodes.set(replaceIdx, newNode);
+                int newNode = outsideNodes[random.nextInt(outsideCount)];
+                tour.replace(replaceIdx, newNode);
             }
             
         } else {
             // Move 4: Or-opt - move a segment to a different position
-            newNodes = new ArrayList<>(nodes);
             int segmentLength = 1 + random.nextInt(Math.min(3, size / 4 + 1));
             int segmentStart = random.nextInt(size - segmentLength + 1);
             
-            List<Integer> segment = new ArrayList<>();
+            int[] segment = new int[segmentLength];
             for (int k = 0; k < segmentLength; k++) {
-                segment.add(newNodes.get(segmentStart));
-                newNodes.remove(segmentStart);
+                segment[k] = tour.remove(segmentStart);
             }
             
-            int insertPos = random.nextInt(newNodes.size() + 1);
-            newNodes.addAll(insertPos, segment);
+            int insertPos = random.nextInt(tour.size() + 1);
+            for (int k = 0; k < segmentLength; k++) {
+                tour.insert(insertPos + k, segment[k]);
+            }
         }
         
-        double objective = ObjectiveFunction.calculate(instance, newNodes);
-        return new Solution(newNodes, objective, "DualAnnealing", newNodes.get(0));
+        tour.setObjectiveValue(ObjectiveFunction.calculate(instance, tour));
     }
 
-    private Solution perturbSolution(Solution solution, Instance instance, Random random) {
-        Solution perturbed = solution;
-
+    private void perturbSolution(Tour tour, Instance instance, Random random, int[] outsideNodes) {
         // Apply 3-7 random moves
         int numMoves = 3 + random.nextInt(5);
         for (int i = 0; i < numMoves; i++) {
-            perturbed = generateNeighbor(perturbed, instance, random, initialTemp);
+            generateNeighbor(tour, instance, random, outsideNodes);
         }
-        
-        return perturbed;
-    }
-
-    private Solution applyLocalSearch(Solution solution, Instance instance) {
-        Algorithm wrapper = new Algorithm() {
-            @Override
-            public Solution solve(Instance inst, int start) {
-                return solution;
-            }
-            
-            @Override
-            public String getName() {
-                return "Wrapper";
-            }
-        };
-        
-        LocalSearchLM localSearch = new LocalSearchLM(wrapper);
-        return localSearch.solve(instance, solution.getStartNode());
     }
 
     @Override
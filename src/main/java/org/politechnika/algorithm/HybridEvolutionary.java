@@ -1,26 +1,85 @@
 package org.politechnika.algorithm;
 
+import org.politechnika.algorithm.local_search.DontLookBits;
 import org.politechnika.algorithm.local_search.LocalSearchLM;
 import org.politechnika.model.Instance;
 import org.politechnika.model.Solution;
-import org.politechnika.util.ObjectiveFunction;
+import org.politechnika.model.Tour;
 
 import java.util.*;
-
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * Steady-state evolutionary algorithm: two random parents are recombined, the offspring is
+ * optionally improved by local search and replaces the worst member when it is better and unique.
+ * <p>
+ * Islands evolve their own populations on separate threads in epochs of at most
+ * {@code migrationInterval} generations and pass their best members along a ring at a phaser
+ * barrier. The barrier decides the length of the next epoch for all islands, so for a fixed seed
+ * the result only depends on the number of generations.
+ * <p>
+ * Concurrent workers breed a single shared {@link Population}; generations are not ordered, so such
+ * runs are not reproducible.
+ */
 public class HybridEvolutionary implements Algorithm {
+    private static final int DEFAULT_MIGRATION_INTERVAL = 50;
+    private static final int MIGRANTS = 2;
+
     private final long timeLimitMs;
     private final long seed;
     private final int populationSize;
     private final boolean useLocalSearchAfterRecombination;
-    
+    private final int islands;
+    private final int migrationInterval;
+    private final int workers;
+    private final boolean partitionCrossover;
+
     private int generations = 0;
     private int localSearchCalls = 0;
 
-    public HybridEvolutionary(long timeLimitMs, long seed, int populationSize, boolean useLocalSearchAfterRecombination) {
+    // workers breed a single population and need one island
+    public HybridEvolutionary(long timeLimitMs, long seed, int populationSize, boolean useLocalSearchAfterRecombination,
+                              int islands, int migrationInterval, int workers, boolean partitionCrossover) {
+        if (islands < 1 || migrationInterval < 1 || workers < 1) {
+            throw new IllegalArgumentException("Islands, migration interval and workers need to be at least 1!");
+        }
+        if (islands > 1 && workers > 1) {
+            throw new IllegalArgumentException("Concurrent workers share a single population, use one island!");
+        }
         this.timeLimitMs = timeLimitMs;
         this.seed = seed;
         this.populationSize = populationSize;
         this.useLocalSearchAfterRecombination = useLocalSearchAfterRecombination;
+        this.islands = islands;
+        this.migrationInterval = migrationInterval;
+        this.workers = workers;
+        this.partitionCrossover = partitionCrossover;
+    }
+
+    public HybridEvolutionary(long timeLimitMs, long seed, int populationSize, boolean useLocalSearchAfterRecombination,
+                              int islands, int migrationInterval, int workers) {
+        this(timeLimitMs, seed, populationSize, useLocalSearchAfterRecombination, islands, migrationInterval, workers, false);
+    }
+
+    public HybridEvolutionary(long timeLimitMs, long seed, int populationSize, boolean useLocalSearchAfterRecombination,
+                              int islands, int migrationInterval) {
+        this(timeLimitMs, seed, populationSize, useLocalSearchAfterRecombination, islands, migrationInterval, 1);
+    }
+
+    public HybridEvolutionary(long timeLimitMs, long seed, int populationSize, boolean useLocalSearchAfterRecombination,
+                              int islands) {
+        this(timeLimitMs, seed, populationSize, useLocalSearchAfterRecombination, islands, DEFAULT_MIGRATION_INTERVAL);
+    }
+
+    public HybridEvolutionary(long timeLimitMs, long seed, int populationSize, boolean useLocalSearchAfterRecombination) {
+        this(timeLimitMs, seed, populationSize, useLocalSearchAfterRecombination, 1);
     }
 
     public HybridEvolutionary(long timeLimitMs, long seed, int populationSize) {
@@ -31,279 +90,278 @@ public class HybridEvolutionary implements Algorithm {
         this(timeLimitMs, seed, 20, true);
     }
 
+    public static HybridEvolutionary concurrent(long timeLimitMs, long seed, int populationSize,
+                                                boolean useLocalSearchAfterRecombination, int workers) {
+        return new HybridEvolutionary(timeLimitMs, seed, populationSize, useLocalSearchAfterRecombination,
+                1, DEFAULT_MIGRATION_INTERVAL, workers);
+    }
+
+    public static HybridEvolutionary withPartitionCrossover(long timeLimitMs, long seed, int populationSize,
+                                                            boolean useLocalSearchAfterRecombination) {
+        return new HybridEvolutionary(timeLimitMs, seed, populationSize, useLocalSearchAfterRecombination,
+                1, DEFAULT_MIGRATION_INTERVAL, 1, true);
+    }
+
     @Override
     public Solution solve(Instance instance, int startNode) {
-        Random random = new Random(seed);
         long startTime = System.currentTimeMillis();
         generations = 0;
         localSearchCalls = 0;
 
-        List<Solution> population = initializePopulation(instance, random);
-        
-        Solution bestSolution = getBest(population);
-
-        while (System.currentTimeMillis() - startTime < timeLimitMs) {
-            generations++;
-
-            Solution parent1 = population.get(random.nextInt(population.size()));
-            Solution parent2 = population.get(random.nextInt(population.size()));
-
-            int attempts = 0;
-            while (parent1 == parent2 && attempts < 5) {
-                parent2 = population.get(random.nextInt(population.size()));
-                attempts++;
-            }
-
-            Solution offspring = recombine(parent1, parent2, instance, random);
-
-            if (useLocalSearchAfterRecombination) {
-                offspring = applyLocalSearch(offspring, instance);
-                localSearchCalls++;
-            }
-
-            if (isUnique(offspring, population)) {
-                int worstIdx = findWorstIndex(population);
-                Solution worst = population.get(worstIdx);
-
-                if (offspring.getObjectiveValue() < worst.getObjectiveValue()) {
-                    population.set(worstIdx, offspring);
-                    
-                    if (offspring.getObjectiveValue() < bestSolution.getObjectiveValue()) {
-                        bestSolution = offspring;
-                    }
-                }
+        Tour bestTour;
+        if (islands > 1) {
+            bestTour = solveIslands(instance, startTime);
+        } else if (workers > 1) {
+            bestTour = solveConcurrent(instance, startTime);
+        } else {
+            Breeder breeder = new Breeder(instance, seed);
+            Population population = breeder.initialize();
+            while (System.currentTimeMillis() - startTime < timeLimitMs) {
+                breeder.evolve(population);
             }
+            bestTour = population.getBest();
+            count(breeder);
         }
 
         long executionTime = System.currentTimeMillis() - startTime;
-        return new Solution(
-            bestSolution.getNodeIds(),
-            bestSolution.getObjectiveValue(),
-            getName(),
-            startNode,
-            executionTime
-        );
+        return bestTour.toSolution(getName(), startNode, executionTime);
     }
 
-    private List<Solution> initializePopulation(Instance instance, Random random) {
-        List<Solution> population = new ArrayList<>();
-
-        int attempts = 0;
-        int maxAttempts = populationSize * 10;
+    private Tour solveIslands(Instance instance, long startTime) {
+        Breeder[] ring = new Breeder[islands];
+        List<Queue<Tour[]>> inboxes = new ArrayList<>(islands);
+        for (int i = 0; i < islands; i++) {
+            // island 0 follows the single population run of the same seed
+            ring[i] = new Breeder(instance, seed ^ (i * 0x9E3779B97F4A7C15L));
+            inboxes.add(new ConcurrentLinkedQueue<>());
+        }
 
-        while (population.size() < populationSize && attempts < maxAttempts) {
-            attempts++;
+        // the global best is the smallest (objective, island) pair, so ties resolve the same way every run
+        AtomicReference<IslandBest> globalBest = new AtomicReference<>();
+        EpochPhaser phaser = new EpochPhaser(islands, startTime);
 
-            RandomSolution randomSolution = new RandomSolution(random.nextLong());
-            LocalSearchLM localSearch = new LocalSearchLM(randomSolution);
-            Solution solution = localSearch.solve(instance, random.nextInt(instance.getTotalNodes()));
-            localSearchCalls++;
+        runParallel(islands, index -> runIsland(ring[index], index, inboxes.get(index),
+                inboxes.get((index + 1) % islands), phaser, globalBest), phaser::forceTermination);
 
-            if (isUnique(solution, population)) {
-                population.add(solution);
-            }
+        for (Breeder breeder : ring) {
+            count(breeder);
         }
-
-        return population;
+        return globalBest.get().tour();
     }
 
-    private Solution recombine(Solution parent1, Solution parent2, Instance instance, Random random) {
-        List<Integer> nodes1 = parent1.getNodeIds();
-        List<Integer> nodes2 = parent2.getNodeIds();
-        
-        Set<Integer> nodesSet1 = new HashSet<>(nodes1);
-        Set<Integer> nodesSet2 = new HashSet<>(nodes2);
-
-        Set<Integer> commonNodes = new HashSet<>(nodesSet1);
-        commonNodes.retainAll(nodesSet2);
-
-        Set<Edge> edges1 = extractEdges(nodes1);
-        Set<Edge> edges2 = extractEdges(nodes2);
-        
-        Set<Edge> commonEdges = new HashSet<>();
-        for (Edge e : edges1) {
-            if (edges2.contains(e) || edges2.contains(e.reversed())) {
-                commonEdges.add(e);
-            }
-        }
-
-        List<List<Integer>> subpaths = buildSubpaths(commonNodes, commonEdges);
-
-        Set<Integer> usedNodes = new HashSet<>();
-        for (List<Integer> subpath : subpaths) {
-            usedNodes.addAll(subpath);
+    // offspring are fresh tours, so a parent read by one worker is never modified by another
+    private Tour solveConcurrent(Instance instance, long startTime) {
+        Breeder[] breeders = new Breeder[workers];
+        for (int i = 0; i < workers; i++) {
+            breeders[i] = new Breeder(instance, seed ^ (i * 0x9E3779B97F4A7C15L));
         }
+        Population population = breeders[0].initialize();
 
-        int targetSize = instance.getNodesToSelect();
-        int nodesToAdd = targetSize - usedNodes.size();
-        
-        List<Integer> availableNodes = new ArrayList<>();
-        for (int i = 0; i < instance.getTotalNodes(); i++) {
-            if (!usedNodes.contains(i)) {
-                availableNodes.add(i);
+        runParallel(workers, index -> {
+            while (System.currentTimeMillis() - startTime < timeLimitMs) {
+                breeders[index].evolve(population);
             }
-        }
-        Collections.shuffle(availableNodes, random);
+        }, () -> {});
 
-        for (int i = 0; i < nodesToAdd && i < availableNodes.size(); i++) {
-            List<Integer> singleNodePath = new ArrayList<>();
-            singleNodePath.add(availableNodes.get(i));
-            subpaths.add(singleNodePath);
+        for (Breeder breeder : breeders) {
+            count(breeder);
         }
-
-        List<Integer> result = connectSubpathsRandomly(subpaths, random);
-        
-        double objectiveValue = ObjectiveFunction.calculate(instance, result);
-        return new Solution(result, objectiveValue, "Offspring", parent1.getStartNode());
+        return population.getBest();
     }
 
-    private Set<Edge> extractEdges(List<Integer> nodes) {
-        Set<Edge> edges = new HashSet<>();
-        for (int i = 0; i < nodes.size(); i++) {
-            int from = nodes.get(i);
-            int to = nodes.get((i + 1) % nodes.size());
-            edges.add(new Edge(from, to));
+    // dedicated threads because tasks may block on each other, onFailure releases the others
+    private static void runParallel(int tasks, IntConsumer task, Runnable onFailure) {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks);
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    try {
+                        task.accept(index);
+                    } catch (RuntimeException | Error e) {
+                        onFailure.run();
+                        throw e;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while evolving", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Evolution thread failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
-        return edges;
     }
 
-    private List<List<Integer>> buildSubpaths(Set<Integer> commonNodes, Set<Edge> commonEdges) {
-        List<List<Integer>> subpaths = new ArrayList<>();
-        Set<Integer> visited = new HashSet<>();
+    private void count(Breeder breeder) {
+        generations += breeder.generations;
+        localSearchCalls += breeder.localSearchCalls;
+    }
 
-        Map<Integer, List<Integer>> adjacency = new HashMap<>();
-        for (Edge e : commonEdges) {
-            adjacency.computeIfAbsent(e.from, k -> new ArrayList<>()).add(e.to);
-            adjacency.computeIfAbsent(e.to, k -> new ArrayList<>()).add(e.from);
+    // every island sends and takes exactly one batch of migrants per epoch, so a fast neighbor that
+    // already sent its next batch does not change what is received
+    private void runIsland(Breeder breeder, int index, Queue<Tour[]> inbox, Queue<Tour[]> next,
+                           EpochPhaser phaser, AtomicReference<IslandBest> globalBest) {
+        Population population = breeder.initialize();
+        publish(population, index, globalBest);
+        phaser.arriveAndAwaitAdvance();
+        if (phaser.isTerminated()) {
+            return;
         }
 
-        for (int node : commonNodes) {
-            if (visited.contains(node)) continue;
-            
-            List<Integer> path = new ArrayList<>();
-            buildPathDFS(node, adjacency, visited, path, commonNodes);
-            
-            if (!path.isEmpty()) {
-                subpaths.add(path);
+        while (true) {
+            int epochLength = phaser.getEpochLength();
+            for (int g = 0; g < epochLength; g++) {
+                breeder.evolve(population);
+            }
+            publish(population, index, globalBest);
+            next.add(population.copyBest(MIGRANTS));
+            phaser.arriveAndAwaitAdvance();
+            if (phaser.isTerminated()) {
+                return;
+            }
+            for (Tour migrant : inbox.poll()) {
+                population.offer(migrant);
             }
         }
-        
-        return subpaths;
     }
 
-    private void buildPathDFS(int node, Map<Integer, List<Integer>> adjacency, 
-                              Set<Integer> visited, List<Integer> path, Set<Integer> commonNodes) {
-        if (visited.contains(node) || !commonNodes.contains(node)) return;
-        
-        visited.add(node);
-        path.add(node);
-        
-        List<Integer> neighbors = adjacency.getOrDefault(node, Collections.emptyList());
-        for (int neighbor : neighbors) {
-            if (!visited.contains(neighbor) && commonNodes.contains(neighbor)) {
-                buildPathDFS(neighbor, adjacency, visited, path, commonNodes);
-            }
+    /**
+     * Sizes the next epoch to what fits in the remaining time at the pace of the last one, which
+     * the slowest island sets, and terminates when no generation fits.
+     */
+    private class EpochPhaser extends Phaser {
+        private final long startTime;
+        private long lastAdvance;
+        private volatile int epochLength;
+
+        EpochPhaser(int parties, long startTime) {
+            super(parties);
+            this.startTime = startTime;
+            this.lastAdvance = startTime;
         }
-    }
 
-    private List<Integer> connectSubpathsRandomly(List<List<Integer>> subpaths, Random random) {
-        if (subpaths.isEmpty()) {
-            return new ArrayList<>();
+        int getEpochLength() {
+            return epochLength;
         }
 
-        Collections.shuffle(subpaths, random);
-        
-        List<Integer> result = new ArrayList<>();
-        for (List<Integer> subpath : subpaths) {
-            if (random.nextBoolean()) {
-                Collections.reverse(subpath);
-            }
-            result.addAll(subpath);
+        @Override
+        protected boolean onAdvance(int phase, int registeredParties) {
+            long now = System.currentTimeMillis();
+            int generationsDone = phase == 0 ? populationSize : epochLength;
+            double msPerGeneration = Math.max(now - lastAdvance, 1) / (double) Math.max(generationsDone, 1);
+            long remaining = timeLimitMs - (now - startTime);
+            lastAdvance = now;
+            epochLength = (int) Math.min(migrationInterval, Math.max(remaining, 0) / msPerGeneration);
+            return epochLength <= 0;
         }
-        
-        return result;
     }
 
-    private Solution applyLocalSearch(Solution solution, Instance instance) {
-        Algorithm wrapper = new Algorithm() {
-            @Override
-            public Solution solve(Instance inst, int start) {
-                return solution;
-            }
-            
-            @Override
-            public String getName() {
-                return "Wrapper";
-            }
-        };
-        
-        LocalSearchLM localSearch = new LocalSearchLM(wrapper);
-        return localSearch.solve(instance, solution.getStartNode());
+    private static void publish(Population population, int index, AtomicReference<IslandBest> globalBest) {
+        Tour best = population.getBest();
+        IslandBest current = globalBest.get();
+        if (current != null && !current.isWorseThan(best.getObjectiveValue(), index)) {
+            return;
+        }
+        IslandBest candidate = new IslandBest(new Tour(best), index);
+        globalBest.accumulateAndGet(candidate, (a, b) ->
+                a == null || a.isWorseThan(b.tour().getObjectiveValue(), b.island()) ? b : a);
     }
 
-    private boolean isUnique(Solution solution, List<Solution> population) {
-        for (Solution s : population) {
-            if (Math.abs(s.getObjectiveValue() - solution.getObjectiveValue()) < 0.001) {
-                return false;
-            }
+    private record IslandBest(Tour tour, int island) {
+        boolean isWorseThan(double objectiveValue, int otherIsland) {
+            double own = tour.getObjectiveValue();
+            return objectiveValue < own || (objectiveValue == own && otherIsland < island);
         }
-        return true;
     }
 
-    private int findWorstIndex(List<Solution> population) {
-        int worstIdx = 0;
-        double worstValue = population.getFirst().getObjectiveValue();
-        
-        for (int i = 1; i < population.size(); i++) {
-            if (population.get(i).getObjectiveValue() > worstValue) {
-                worstValue = population.get(i).getObjectiveValue();
-                worstIdx = i;
-            }
+    // random stream and local search buffers of one thread
+    private class Breeder {
+        private final Instance instance;
+        private final Random random;
+        private final LocalSearchLM localSearch;
+        private final CommonEdgeRecombination recombination;
+        private final PartitionCrossover crossover;
+        private final DontLookBits changedNodes;
+        private int generations;
+        private int localSearchCalls;
+
+        Breeder(Instance instance, long seed) {
+            this.instance = instance;
+            this.random = new Random(seed);
+            this.localSearch = new LocalSearchLM(new RandomSolution(seed));
+            this.recombination = new CommonEdgeRecombination(instance);
+            this.crossover = partitionCrossover ? new PartitionCrossover(instance) : null;
+            this.changedNodes = new DontLookBits(instance.getTotalNodes());
         }
-        
-        return worstIdx;
-    }
 
-    private Solution getBest(List<Solution> population) {
-        Solution best = population.getFirst();
-        for (Solution s : population) {
-            if (s.getObjectiveValue() < best.getObjectiveValue()) {
-                best = s;
+        Population initialize() {
+            List<Tour> members = new ArrayList<>();
+            Set<Long> edgeHashes = new HashSet<>();
+
+            int attempts = 0;
+            int maxAttempts = populationSize * 10;
+
+            while (members.size() < populationSize && attempts < maxAttempts) {
+                attempts++;
+
+                RandomSolution randomSolution = new RandomSolution(random.nextLong());
+                Tour tour = Tour.of(instance, randomSolution.solve(instance, random.nextInt(instance.getTotalNodes())));
+                localSearch.improve(tour, instance);
+                localSearchCalls++;
+
+                if (edgeHashes.add(tour.getEdgeHash())) {
+                    members.add(tour);
+                }
             }
+
+            return new Population(members);
         }
-        return best;
-    }
 
-    @Override
-    public String getName() {
-        String lsStatus = useLocalSearchAfterRecombination ? "withLS" : "noLS";
-        return String.format("HybridEvo_%s (time=%dms, pop=%d, gens=%d, lsCalls=%d)",
-                             lsStatus, timeLimitMs, populationSize, generations, localSearchCalls);
-    }
+        void evolve(Population population) {
+            generations++;
 
-    private static class Edge {
-        final int from;
-        final int to;
+            Tour parent1 = population.get(random.nextInt(population.size()));
+            Tour parent2 = population.get(random.nextInt(population.size()));
 
-        Edge(int from, int to) {
-            this.from = from;
-            this.to = to;
-        }
+            int attempts = 0;
+            while (parent1 == parent2 && attempts < 5) {
+                parent2 = population.get(random.nextInt(population.size()));
+                attempts++;
+            }
 
-        Edge reversed() {
-            return new Edge(to, from);
-        }
+            Tour offspring = crossover == null ? null : crossover.recombine(parent1, parent2, changedNodes);
+            if (offspring != null) {
+                if (useLocalSearchAfterRecombination) {
+                    localSearch.improve(offspring, instance, changedNodes);
+                    localSearchCalls++;
+                }
+                changedNodes.clear();
+            } else {
+                offspring = recombination.recombine(parent1, parent2, random);
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof Edge edge)) return false;
-            return from == edge.from && to == edge.to;
-        }
+                if (useLocalSearchAfterRecombination) {
+                    localSearch.improve(offspring, instance);
+                    localSearchCalls++;
+                }
+            }
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(from, to);
+            population.offer(offspring);
         }
     }
+
+    @Override
+    public String getName() {
+        String lsStatus = useLocalSearchAfterRecombination ? "withLS" : "noLS";
+        String islandStatus = islands > 1 ? String.format(", islands=%d, migration=%d", islands, migrationInterval)
+                : workers > 1 ? String.format(", workers=%d", workers) : "";
+        String crossoverStatus = partitionCrossover ? ", gpx" : "";
+        return String.format("HybridEvo_%s (time=%dms, pop=%d%s%s, gens=%d, lsCalls=%d)",
+                             lsStatus, timeLimitMs, populationSize, islandStatus, crossoverStatus, generations, localSearchCalls);
+    }
 }
@@ -1,13 +1,12 @@
 package org.politechnika.algorithm;
 
+import org.politechnika.algorithm.local_search.DontLookBits;
 import org.politechnika.algorithm.local_search.LocalSearchLM;
 import org.politechnika.model.Instance;
 import org.politechnika.model.Solution;
+import org.politechnika.model.Tour;
 import org.politechnika.algorithm.local_search.LocalSearch;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Random;
 
 
@@ -32,80 +31,76 @@ public class ILS implements Algorithm {
 
         RandomSolution randomSolution = new RandomSolution(seed);
         LocalSearch localSearch = new LocalSearchLM(randomSolution);
-        Solution currentSolution = localSearch.solve(instance, startNode);
+        Tour currentTour = Tour.of(instance, randomSolution.solve(instance, startNode));
+        localSearch.improve(currentTour, instance);
         localSearchRuns++;
         
-        Solution bestSolution = currentSolution;
+        Tour bestTour = new Tour(currentTour);
+        Tour candidateTour = new Tour(currentTour);
+        int[] buffer = new int[currentTour.size()];
+        DontLookBits dontLookBits = new DontLookBits(instance.getTotalNodes());
 
         while (System.currentTimeMillis() - startTime < timeLimitMs) {
-            Solution perturbedSolution = perturb(currentSolution, instance, random);
+            candidateTour.copyFrom(currentTour);
+            perturb(candidateTour, instance, random, buffer, dontLookBits);
 
-            Solution improvedSolution = applyLocalSearch(perturbedSolution, instance);
+            localSearch.improve(candidateTour, instance, dontLookBits);
             localSearchRuns++;
 
-            if (improvedSolution.getObjectiveValue() <= currentSolution.getObjectiveValue()) {
-                currentSolution = improvedSolution;
+            if (candidateTour.getObjectiveValue() <= currentTour.getObjectiveValue()) {
+                Tour previous = currentTour;
+                currentTour = candidateTour;
+                candidateTour = previous;
 
-                if (currentSolution.getObjectiveValue() < bestSolution.getObjectiveValue()) {
-                    bestSolution = currentSolution;
+                if (currentTour.getObjectiveValue() < bestTour.getObjectiveValue()) {
+                    bestTour.copyFrom(currentTour);
                 }
             }
         }
 
-        return new Solution(
-            bestSolution.getNodeIds(),
-            bestSolution.getObjectiveValue(),
-            getName(),
-            startNode
-        );
+        return bestTour.toSolution(getName(), startNode);
     }
 
-    private Solution applyLocalSearch(Solution solution, Instance instance) {
-        Algorithm wrapper = new Algorithm() {
-            @Override
-            public Solution solve(Instance inst, int start) {
-                return solution;
-            }
-            
-            @Override
-            public String getName() {
-                return "Wrapper";
-            }
-        };
-        
-        LocalSearch localSearch = new LocalSearchLM(wrapper);
-        return localSearch.solve(instance, solution.getStartNode());
-    }
-
-    private Solution perturb(Solution solution, Instance instance, Random random) {
-        List<Integer> currentNodes = new ArrayList<>(solution.getNodeIds());
-        int size = currentNodes.size();
+    // double bridge A -> D -> C -> B in place, only the eight segment endpoints are activated
+    private void perturb(Tour tour, Instance instance, Random random, int[] buffer, DontLookBits dontLookBits) {
+        int size = tour.size();
 
         int quarter = size / 4;
         int pos1 = 1 + random.nextInt(quarter);
         int pos2 = pos1 + 1 + random.nextInt(quarter);
         int pos3 = pos2 + 1 + random.nextInt(quarter);
 
-        List<Integer> segA = currentNodes.subList(0, pos1);
-        List<Integer> segB = currentNodes.subList(pos1, pos2);
-        List<Integer> segC = currentNodes.subList(pos2, pos3);
-        List<Integer> segD = currentNodes.subList(pos3, size);
-
-        // A -> D -> C -> B
-        List<Integer> newIds = new ArrayList<>();
-        newIds.addAll(segA);
-        newIds.addAll(segD); // Swapped
-        newIds.addAll(segC); // Original order preserved in segment
-        newIds.addAll(segB); // Swapped
-
-        double objectiveValue = org.politechnika.util.ObjectiveFunction.calculate(instance, newIds);
-
-        return new Solution(
-                newIds,
-                objectiveValue,
-                "Perturbed (Double-Bridge)",
-                solution.getStartNode()
-        );
+        int aFirst = tour.getNodeAt(0);
+        int aLast = tour.getNodeAt(pos1 - 1);
+        int bFirst = tour.getNodeAt(pos1);
+        int bLast = tour.getNodeAt(pos2 - 1);
+        int cFirst = tour.getNodeAt(pos2);
+        int cLast = tour.getNodeAt(pos3 - 1);
+        int dFirst = tour.getNodeAt(pos3);
+        int dLast = tour.getNodeAt(size - 1);
+
+        double delta = instance.getDistance(aLast, dFirst) + instance.getDistance(dLast, cFirst)
+                + instance.getDistance(cLast, bFirst) + instance.getDistance(bLast, aFirst)
+                - instance.getDistance(aLast, bFirst) - instance.getDistance(bLast, cFirst)
+                - instance.getDistance(cLast, dFirst) - instance.getDistance(dLast, aFirst);
+
+        int k = 0;
+        for (int i = 0; i < pos1; i++) buffer[k++] = tour.getNodeAt(i);
+        for (int i = pos3; i < size; i++) buffer[k++] = tour.getNodeAt(i); // Swapped
+        for (int i = pos2; i < pos3; i++) buffer[k++] = tour.getNodeAt(i); // Original order preserved in segment
+        for (int i = pos1; i < pos2; i++) buffer[k++] = tour.getNodeAt(i); // Swapped
+
+        tour.assign(buffer, size);
+        tour.addToObjectiveValue(delta);
+
+        dontLookBits.activate(aFirst);
+        dontLookBits.activate(aLast);
+        dontLookBits.activate(bFirst);
+        dontLookBits.activate(bLast);
+        dontLookBits.activate(cFirst);
+        dontLookBits.activate(cLast);
+        dontLookBits.activate(dFirst);
+        dontLookBits.activate(dLast);
     }
     
     @Override
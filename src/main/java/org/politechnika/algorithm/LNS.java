@@ -1,12 +1,12 @@
 package org.politechnika.algorithm;
 
 import org.politechnika.algorithm.greedy_regret.RegretK2NNAny;
+import org.politechnika.algorithm.local_search.DontLookBits;
 import org.politechnika.algorithm.local_search.LocalSearchLM;
 import org.politechnika.model.Instance;
 import org.politechnika.model.Solution;
+import org.politechnika.model.Tour;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 
@@ -41,90 +41,106 @@ public class LNS implements Algorithm {
         iterations = 0;
 
         RandomSolution randomSolution = new RandomSolution(seed);
-        Solution initialSolution = randomSolution.solve(instance, startNode);
+        LocalSearchLM localSearch = new LocalSearchLM(randomSolution);
+        RegretK2NNAny regretAlgorithm = new RegretK2NNAny(0.5, 0.5);
 
-        Solution currentSolution = applyLocalSearch(initialSolution, instance);
-        Solution bestSolution = currentSolution;
+        Tour currentTour = Tour.of(instance, randomSolution.solve(instance, startNode));
+        localSearch.improve(currentTour, instance);
+        Tour bestTour = new Tour(currentTour);
+        Tour candidateTour = new Tour(currentTour);
+        DontLookBits dontLookBits = new DontLookBits(instance.getTotalNodes());
 
         while (System.currentTimeMillis() - startTime < timeLimitMs) {
             iterations++;
 
-            List<Integer> destroyedSolution = destroy(currentSolution, instance, random);
+            candidateTour.copyFrom(currentTour);
+            destroy(candidateTour, instance, random);
 
-            Solution repairedSolution = repair(destroyedSolution, instance, random);
+            regretAlgorithm.repair(instance, candidateTour);
 
-            Solution improvedSolution = repairedSolution;
             if (useLocalSearchAfterRepair) {
-                improvedSolution = applyLocalSearch(repairedSolution, instance);
+                activateChangedNodes(currentTour, candidateTour, dontLookBits);
+                localSearch.improve(candidateTour, instance, dontLookBits);
             }
 
-            if (improvedSolution.getObjectiveValue() <= currentSolution.getObjectiveValue()) {
-                currentSolution = improvedSolution;
+            if (candidateTour.getObjectiveValue() <= currentTour.getObjectiveValue()) {
+                Tour previous = currentTour;
+                currentTour = candidateTour;
+                candidateTour = previous;
 
-                if (currentSolution.getObjectiveValue() < bestSolution.getObjectiveValue()) {
-                    bestSolution = currentSolution;
+                if (currentTour.getObjectiveValue() < bestTour.getObjectiveValue()) {
+                    bestTour.copyFrom(currentTour);
                 }
             }
         }
 
         long executionTime = System.currentTimeMillis() - startTime;
-        return new Solution(
-            bestSolution.getNodeIds(),
-            bestSolution.getObjectiveValue(),
-            getName(),
-            startNode,
-            executionTime
-        );
+        return bestTour.toSolution(getName(), startNode, executionTime);
     }
 
-    private List<Integer> destroy(Solution solution, Instance instance, Random random) {
-        List<Integer> currentNodes = new ArrayList<>(solution.getNodeIds());
-        int nodesToRemove = Math.max(1, (int) (currentNodes.size() * destructionRate));
+    // destroy and repair never reverse a segment, so moves among the untouched nodes keep their
+    // deltas
+    private static void activateChangedNodes(Tour before, Tour after, DontLookBits dontLookBits) {
+        for (int i = 0; i < after.size(); i++) {
+            int nodeId = after.getNodeAt(i);
+            int index = before.positionOf(nodeId);
+            if (index < 0) {
+                dontLookBits.activate(nodeId);
+                continue;
+            }
+            int prev = after.prevNode(i);
+            int next = after.nextNode(i);
+            int prevBefore = before.prevNode(index);
+            int nextBefore = before.nextNode(index);
+            if (!((prev == prevBefore && next == nextBefore) || (prev == nextBefore && next == prevBefore))) {
+                dontLookBits.activate(nodeId);
+            }
+        }
+        for (int i = 0; i < before.size(); i++) {
+            int nodeId = before.getNodeAt(i);
+            if (!after.contains(nodeId)) {
+                dontLookBits.activate(nodeId);
+            }
+        }
+    }
+
+    private void destroy(Tour tour, Instance instance, Random random) {
+        int nodesToRemove = Math.max(1, (int) (tour.size() * destructionRate));
+        double[] removalProbs = new double[tour.size()];
 
         for (int i = 0; i < nodesToRemove; i++) {
-            if (currentNodes.size() <= 1) break;
+            int size = tour.size();
+            if (size <= 1) break;
 
             double minCost = Double.MAX_VALUE;
             double maxCost = Double.MIN_VALUE;
-            for (int nodeId : currentNodes) {
-                double cost = instance.getNode(nodeId).getCost();
+            for (int j = 0; j < size; j++) {
+                double cost = instance.getCost(tour.getNodeAt(j));
                 minCost = Math.min(minCost, cost);
                 maxCost = Math.max(maxCost, cost);
             }
 
             double minEdge = Double.MAX_VALUE;
             double maxEdge = Double.MIN_VALUE;
-            for (int j = 0; j < currentNodes.size(); j++) {
-                int nodeId = currentNodes.get(j);
-                int prevIdx = (j - 1 + currentNodes.size()) % currentNodes.size();
-                int nextIdx = (j + 1) % currentNodes.size();
-
-                int prevNodeId = currentNodes.get(prevIdx);
-                int nextNodeId = currentNodes.get(nextIdx);
-
-                double edgeLength = instance.getDistance(prevNodeId, nodeId) +
-                                   instance.getDistance(nodeId, nextNodeId);
+            for (int j = 0; j < size; j++) {
+                int nodeId = tour.getNodeAt(j);
+                double edgeLength = instance.getDistance(tour.prevNode(j), nodeId) +
+                                   instance.getDistance(nodeId, tour.nextNode(j));
                 minEdge = Math.min(minEdge, edgeLength);
                 maxEdge = Math.max(maxEdge, edgeLength);
             }
 
-            double[] removalProbs = new double[currentNodes.size()];
             double totalProb = 0;
 
-            for (int j = 0; j < currentNodes.size(); j++) {
-                int nodeId = currentNodes.get(j);
+            for (int j = 0; j < size; j++) {
+                int nodeId = tour.getNodeAt(j);
 
-                double cost = instance.getNode(nodeId).getCost();
+                double cost = instance.getCost(nodeId);
                 double normalizedCost = (maxCost > minCost) ?
                     (cost - minCost) / (maxCost - minCost) : 0.5;
 
-                int prevIdx = (j - 1 + currentNodes.size()) % currentNodes.size();
-                int nextIdx = (j + 1) % currentNodes.size();
-                int prevNodeId = currentNodes.get(prevIdx);
-                int nextNodeId = currentNodes.get(nextIdx);
-
-                double edgeLength = instance.getDistance(prevNodeId, nodeId) +
-                                   instance.getDistance(nodeId, nextNodeId);
+                double edgeLength = instance.getDistance(tour.prevNode(j), nodeId) +
+                                   instance.getDistance(nodeId, tour.nextNode(j));
                 double normalizedEdge = (maxEdge > minEdge) ?
                     (edgeLength - minEdge) / (maxEdge - minEdge) : 0.5;
 
@@ -134,14 +150,14 @@ public class LNS implements Algorithm {
                 totalProb += removalProbs[j];
             }
 
-            for (int j = 0; j < removalProbs.length; j++) {
+            for (int j = 0; j < size; j++) {
                 removalProbs[j] /= totalProb;
             }
 
             double rand = random.nextDouble();
             double cumProb = 0;
             int removeIdx = 0;
-            for (int j = 0; j < removalProbs.length; j++) {
+            for (int j = 0; j < size; j++) {
                 cumProb += removalProbs[j];
                 if (rand <= cumProb) {
                     removeIdx = j;
@@ -149,33 +165,8 @@ public class LNS implements Algorithm {
                 }
             }
 
-            currentNodes.remove(removeIdx);
+            tour.remove(removeIdx);
         }
-
-        return currentNodes;
-    }
-
-    private Solution repair(List<Integer> partialSolution, Instance instance, Random random) {
-        RegretK2NNAny regretAlgorithm = new RegretK2NNAny(0.5, 0.5);
-        int startNode = partialSolution.isEmpty() ? 0 : partialSolution.get(0);
-        return regretAlgorithm.solveFromPartialSolution(instance, partialSolution, startNode);
-    }
-
-    private Solution applyLocalSearch(Solution solution, Instance instance) {
-        Algorithm wrapper = new Algorithm() {
-            @Override
-            public Solution solve(Instance inst, int start) {
-                return solution;
-            }
-
-            @Override
-            public String getName() {
-                return "Wrapper";
-            }
-        };
-
-        LocalSearchLM localSearch = new LocalSearchLM(wrapper);
-        return localSearch.solve(instance, solution.getStartNode());
     }
 
     @Override
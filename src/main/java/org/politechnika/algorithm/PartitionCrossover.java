@@ -0,0 +1,279 @@
+package org.politechnika.algorithm;
+
+import org.politechnika.algorithm.local_search.DontLookBits;
+import org.politechnika.model.Instance;
+import org.politechnika.model.Tour;
+
+import java.util.Arrays;
+
+
+/**
+ * Partition crossover (GPX) adapted to tours over a selection of the nodes. The edges of both
+ * parents that are not common split the union graph into components; a component is feasible
+ * when each parent visits it in one piece and both enter and leave it through the same two
+ * portal nodes, because then its route can be taken from either parent independently of the
+ * others. The child is the better parent with the routes of some feasible components replaced
+ * by the other parent's, chosen to maximize the saving.
+ * <p>
+ * The parents may visit different nodes, so a replaced route can change the tour size. The
+ * choice is a small knapsack over the size differences that must sum to zero, solved exactly for
+ * components that change the size by at most {@link #MAX_SIZE_SHIFT} nodes. The child objective
+ * is the better parent's minus the saving, so the child is strictly better than both parents.
+ * Buffers are reused, so an instance must not be shared between threads.
+ */
+class PartitionCrossover {
+    private static final int MAX_SIZE_SHIFT = 32;
+    private static final int NONE = -1;
+    private static final int WIDTH = 2 * MAX_SIZE_SHIFT + 1;
+
+    private final Instance instance;
+    private final int[] root;
+    // per component, indexed by its root: 0 for the better parent, 1 for the other one
+    private final int[][] pieces = new int[2][];
+    private final int[][] entry = new int[2][];
+    private final int[][] exit = new int[2][];
+    private final int[][] nodes = new int[2][];
+    private final long[][] routeCost = new long[2][];
+    private final boolean[] chosen;
+    private final int[] components;
+    private int feasibleCount;
+    private final int[] child;
+    // knapsack rows by size shift and the choices of every component, grown with the component count
+    private final long[] savings = new long[WIDTH];
+    private final long[] nextSavings = new long[WIDTH];
+    private boolean[] taken = new boolean[0];
+
+    PartitionCrossover(Instance instance) {
+        int totalNodes = instance.getTotalNodes();
+        this.instance = instance;
+        this.root = new int[totalNodes];
+        for (int p = 0; p < 2; p++) {
+            pieces[p] = new int[totalNodes];
+            entry[p] = new int[totalNodes];
+            exit[p] = new int[totalNodes];
+            nodes[p] = new int[totalNodes];
+            routeCost[p] = new long[totalNodes];
+        }
+        this.chosen = new boolean[totalNodes];
+        this.components = new int[totalNodes];
+        this.child = new int[totalNodes];
+        Arrays.fill(root, NONE);
+    }
+
+    /**
+     * Child better than both parents, or null. Nodes on the replaced routes are activated in
+     * {@code changed}.
+     */
+    Tour recombine(Tour parent1, Tour parent2, DontLookBits changed) {
+        Tour base = parent2.getObjectiveValue() < parent1.getObjectiveValue() ? parent2 : parent1;
+        Tour donor = base == parent1 ? parent2 : parent1;
+        if (base.size() < 3 || donor.size() < 3) {
+            return null;
+        }
+
+        try {
+            linkComponents(base, donor);
+            clearSummaries(base);
+            clearSummaries(donor);
+            summarize(base, 0);
+            summarize(donor, 1);
+            feasibleCount = collectFeasible(base);
+            long saving = choose(feasibleCount);
+            if (saving <= 0) {
+                return null;
+            }
+            return build(base, donor, saving, changed);
+        } finally {
+            for (int k = 0; k < feasibleCount; k++) {
+                chosen[components[k]] = false;
+            }
+            feasibleCount = 0;
+            clearRoots(base);
+            clearRoots(donor);
+        }
+    }
+
+    // nodes without an uncommon edge keep NONE and belong to no component
+    private void linkComponents(Tour base, Tour donor) {
+        for (Tour tour : new Tour[]{base, donor}) {
+            Tour other = tour == base ? donor : base;
+            for (int i = 0; i < tour.size(); i++) {
+                if (CommonEdgeRecombination.isCommonEdge(tour, other, i)) continue;
+                union(tour.getNodeAt(i), tour.nextNode(i));
+            }
+        }
+    }
+
+    private int find(int nodeId) {
+        if (root[nodeId] == NONE) {
+            root[nodeId] = nodeId;
+            return nodeId;
+        }
+        int r = nodeId;
+        while (root[r] != r) {
+            r = root[r];
+        }
+        while (root[nodeId] != r) {
+            int next = root[nodeId];
+            root[nodeId] = r;
+            nodeId = next;
+        }
+        return r;
+    }
+
+    private void union(int nodeId1, int nodeId2) {
+        int root1 = find(nodeId1);
+        int root2 = find(nodeId2);
+        if (root1 != root2) {
+            root[root1] = root2;
+        }
+    }
+
+    private int componentOf(int nodeId) {
+        return root[nodeId] == NONE ? NONE : find(nodeId);
+    }
+
+    // a component may not be visited by the other parent at all, so both summaries are reset
+    private void clearSummaries(Tour tour) {
+        for (int i = 0; i < tour.size(); i++) {
+            int c = componentOf(tour.getNodeAt(i));
+            if (c == NONE) continue;
+            for (int p = 0; p < 2; p++) {
+                pieces[p][c] = 0;
+                nodes[p][c] = 0;
+                routeCost[p][c] = 0;
+            }
+        }
+    }
+
+    // pieces per component; for one piece also its portals, node count and route cost
+    private void summarize(Tour tour, int p) {
+        int size = tour.size();
+        for (int i = 0; i < size; i++) {
+            int nodeId = tour.getNodeAt(i);
+            int c = componentOf(nodeId);
+            if (c == NONE) continue;
+            int next = tour.nextNode(i);
+            if (componentOf(tour.prevNode(i)) != c) {
+                pieces[p][c]++;
+                entry[p][c] = nodeId;
+            }
+            nodes[p][c]++;
+            routeCost[p][c] += instance.getCost(nodeId);
+            if (componentOf(next) == c) {
+                routeCost[p][c] += instance.getDistance(nodeId, next);
+            } else {
+                exit[p][c] = nodeId;
+            }
+        }
+    }
+
+    // components both parents visit in one piece between the same portals, in base order
+    private int collectFeasible(Tour base) {
+        int count = 0;
+        for (int i = 0; i < base.size(); i++) {
+            int nodeId = base.getNodeAt(i);
+            int c = componentOf(nodeId);
+            if (c == NONE || entry[0][c] != nodeId || pieces[0][c] != 1 || pieces[1][c] != 1) continue;
+            boolean samePortals = (entry[0][c] == entry[1][c] && exit[0][c] == exit[1][c])
+                    || (entry[0][c] == exit[1][c] && exit[0][c] == entry[1][c]);
+            if (samePortals && Math.abs(nodes[1][c] - nodes[0][c]) <= MAX_SIZE_SHIFT) {
+                components[count++] = c;
+            }
+        }
+        return count;
+    }
+
+    // largest saving of components whose size shifts sum to zero, marked in chosen
+    private long choose(int count) {
+        long[] best = savings;
+        long[] next = nextSavings;
+        if (taken.length < count * WIDTH) {
+            taken = new boolean[count * WIDTH];
+        } else {
+            Arrays.fill(taken, 0, count * WIDTH, false);
+        }
+        Arrays.fill(best, Long.MIN_VALUE);
+        best[MAX_SIZE_SHIFT] = 0;
+
+        for (int k = 0; k < count; k++) {
+            int c = components[k];
+            int shift = nodes[1][c] - nodes[0][c];
+            long saving = routeCost[0][c] - routeCost[1][c];
+            System.arraycopy(best, 0, next, 0, WIDTH);
+            for (int s = 0; s < WIDTH; s++) {
+                int target = s + shift;
+                if (best[s] == Long.MIN_VALUE || target < 0 || target >= WIDTH) continue;
+                if (best[s] + saving > next[target]) {
+                    next[target] = best[s] + saving;
+                    taken[k * WIDTH + target] = true;
+                }
+            }
+            long[] swap = best;
+            best = next;
+            next = swap;
+        }
+
+        int s = MAX_SIZE_SHIFT;
+        for (int k = count - 1; k >= 0; k--) {
+            int c = components[k];
+            chosen[c] = taken[k * WIDTH + s];
+            if (chosen[c]) {
+                s -= nodes[1][c] - nodes[0][c];
+            }
+        }
+        return best[MAX_SIZE_SHIFT];
+    }
+
+    // the donor route of a chosen component starts at the portal the base enters through
+    private Tour build(Tour base, Tour donor, long saving, DontLookBits changed) {
+        int count = 0;
+        int size = base.size();
+        // start outside any chosen component so that no route wraps around the end
+        int first = 0;
+        while (first < size && isChosen(base.getNodeAt(first))) {
+            first++;
+        }
+
+        for (int k = 0; k < size; k++) {
+            int i = (first + k) % size;
+            int nodeId = base.getNodeAt(i);
+            int c = componentOf(nodeId);
+            if (c == NONE || !chosen[c]) {
+                child[count++] = nodeId;
+                continue;
+            }
+            changed.activate(nodeId);
+            if (nodeId != entry[0][c]) continue;
+
+            int index = donor.positionOf(nodeId);
+            boolean forward = entry[1][c] == nodeId;
+            while (true) {
+                int donorNode = donor.getNodeAt(index);
+                child[count++] = donorNode;
+                changed.activate(donorNode);
+                if (donorNode == (forward ? exit[1][c] : entry[1][c])) break;
+                index = forward ? donor.nextIndex(index) : donor.prevIndex(index);
+            }
+        }
+
+        if (count != instance.getNodesToSelect()) {
+            throw new RuntimeException("Partition crossover built a child of " + count + " nodes");
+        }
+        Tour tour = new Tour(instance.getTotalNodes());
+        tour.assign(child, count);
+        tour.setObjectiveValue(base.getObjectiveValue() - saving);
+        return tour;
+    }
+
+    private boolean isChosen(int nodeId) {
+        int c = componentOf(nodeId);
+        return c != NONE && chosen[c];
+    }
+
+    private void clearRoots(Tour tour) {
+        for (int i = 0; i < tour.size(); i++) {
+            root[tour.getNodeAt(i)] = NONE;
+        }
+    }
+}
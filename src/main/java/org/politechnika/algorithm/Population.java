@@ -0,0 +1,93 @@
+package org.politechnika.algorithm;
+
+import org.politechnika.model.Tour;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Fixed size population several threads can breed from at once. Members are published in an atomic
+ * array and never modified, an offspring replaces the worst member with a compare-and-set and
+ * rescans when another thread won.
+ * <p>
+ * Duplicates are detected by edge hash: an offer claims its hash in a concurrent map first and
+ * gives it back when rejected, so two equal tours never get in together. Hash collisions count as
+ * duplicates, below 2^-40 for populations of thousands.
+ */
+class Population {
+    private final AtomicReferenceArray<Tour> slots;
+    private final ConcurrentHashMap<Long, Tour> memberHashes = new ConcurrentHashMap<>();
+
+    // members need distinct edge hashes
+    Population(List<Tour> members) {
+        this.slots = new AtomicReferenceArray<>(members.toArray(Tour[]::new));
+        for (Tour member : members) {
+            memberHashes.put(member.getEdgeHash(), member);
+        }
+    }
+
+    int size() {
+        return slots.length();
+    }
+
+    Tour get(int index) {
+        return slots.get(index);
+    }
+
+    // replaces the first worst member; an accepted tour must not be modified
+    boolean offer(Tour tour) {
+        long hash = tour.getEdgeHash();
+        if (memberHashes.putIfAbsent(hash, tour) != null) {
+            return false;
+        }
+        double objectiveValue = tour.getObjectiveValue();
+        while (true) {
+            int worstIdx = -1;
+            Tour worst = null;
+            for (int i = 0; i < slots.length(); i++) {
+                Tour member = slots.get(i);
+                if (worst == null || member.getObjectiveValue() > worst.getObjectiveValue()) {
+                    worst = member;
+                    worstIdx = i;
+                }
+            }
+            if (worst == null || objectiveValue >= worst.getObjectiveValue()) {
+                memberHashes.remove(hash, tour);
+                return false;
+            }
+            if (slots.compareAndSet(worstIdx, worst, tour)) {
+                memberHashes.remove(worst.getEdgeHash(), worst);
+                return true;
+            }
+        }
+    }
+
+    // replacing only worse members keeps the best from getting worse
+    Tour getBest() {
+        Tour best = slots.get(0);
+        for (int i = 1; i < slots.length(); i++) {
+            Tour member = slots.get(i);
+            if (member.getObjectiveValue() < best.getObjectiveValue()) {
+                best = member;
+            }
+        }
+        return best;
+    }
+
+    // ordered by objective and then by slot
+    Tour[] copyBest(int count) {
+        Tour[] members = new Tour[slots.length()];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = slots.get(i);
+        }
+        return Arrays.stream(members)
+                .sorted(Comparator.comparingDouble(Tour::getObjectiveValue))
+                .limit(count)
+                .map(Tour::new)
+                .toArray(Tour[]::new);
+    }
+}
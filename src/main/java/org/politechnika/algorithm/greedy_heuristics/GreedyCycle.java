@@ -3,29 +3,36 @@ package org.politechnika.algorithm.greedy_heuristics;
 import org.politechnika.algorithm.Algorithm;
 import org.politechnika.model.Instance;
 import org.politechnika.model.Solution;
+import org.politechnika.model.Tour;
+import org.politechnika.util.KdTree;
 import org.politechnika.util.ObjectiveFunction;
+import org.politechnika.util.ParallelArgMin;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 
 public class GreedyCycle implements Algorithm {
+    private final boolean parallel;
+
+    public GreedyCycle() {
+        this(false);
+    }
+
+    public GreedyCycle(boolean parallel) {
+        this.parallel = parallel;
+    }
 
     @Override
     public Solution solve(Instance instance, int startNode) {
         int nodesToSelect = instance.getNodesToSelect();
         List<Integer> cycle = new ArrayList<>();
-        Set<Integer> visited = new HashSet<>();
 
         cycle.add(startNode);
-        visited.add(startNode);
 
-        int secondNode = findNearestNode(instance, startNode, visited);
+        int secondNode = findNearestNode(instance, startNode);
         if (secondNode != -1) {
             cycle.add(secondNode);
-            visited.add(secondNode);
         }
 
         if (nodesToSelect == 1) {
@@ -33,65 +40,34 @@ public class GreedyCycle implements Algorithm {
             return new Solution(cycle, objectiveValue, getName(), startNode);
         }
 
-        while (cycle.size() < nodesToSelect) {
-            int bestNode = -1;
-            int bestPosition = -1;
-            double bestIncrease = Double.MAX_VALUE;
-
-            for (int candidateNode = 0; candidateNode < instance.getTotalNodes(); candidateNode++) {
-                if (visited.contains(candidateNode)) {
-                    continue;
-                }
-
-                for (int i = 0; i < cycle.size(); i++) {
-                    int currentNode = cycle.get(i);
-                    int nextNode = cycle.get((i + 1) % cycle.size());
-
-                    double removedDistance = instance.getDistance(currentNode, nextNode);
-                    double addedDistance = instance.getDistance(currentNode, candidateNode) +
-                                          instance.getDistance(candidateNode, nextNode);
-                    double candidateCost = instance.getNode(candidateNode).getCost();
-
-                    double increase = addedDistance - removedDistance + candidateCost;
-
-                    if (increase < bestIncrease) {
-                        bestIncrease = increase;
-                        bestNode = candidateNode;
-                        bestPosition = i + 1;
-                    }
-                }
-            }
+        Tour tour = Tour.of(instance, cycle, 0);
+        InsertionTable table = new InsertionTable(instance, false, true, parallel);
+        table.start(tour);
+
+        while (tour.size() < nodesToSelect) {
+            int bestNode = ParallelArgMin.argMin(instance.getTotalNodes(),
+                    candidateNode -> !tour.contains(candidateNode), table::bestIncrease, parallel);
 
             if (bestNode == -1) {
                 throw new RuntimeException("Could not find next node to add");
             }
 
-            cycle.add(bestPosition, bestNode);
-            visited.add(bestNode);
+            table.insert(bestNode);
         }
+        cycle = tour.toList();
 
         double objectiveValue = ObjectiveFunction.calculate(instance, cycle);
 
         return new Solution(cycle, objectiveValue, getName(), startNode);
     }
 
-    private int findNearestNode(Instance instance, int fromNode, Set<Integer> visited) {
-        int bestNode = -1;
-        double bestValue = Double.MAX_VALUE;
-
-        for (int i = 0; i < instance.getTotalNodes(); i++) {
-            if (visited.contains(i)) {
-                continue;
-            }
-
-            double value = instance.getDistance(fromNode, i) + instance.getNode(i).getCost();
-            if (value < bestValue) {
-                bestValue = value;
-                bestNode = i;
-            }
-        }
+    private int findNearestNode(Instance instance, int fromNode) {
+        return KdTree.of(instance).nearest(fromNode, null);
+    }
 
-        return bestNode;
+    @Override
+    public boolean solvesAllInParallel() {
+        return true;
     }
 
     @Override
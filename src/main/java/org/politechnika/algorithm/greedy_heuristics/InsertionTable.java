@@ -0,0 +1,265 @@
+package org.politechnika.algorithm.greedy_heuristics;
+
+import org.politechnika.model.Instance;
+import org.politechnika.model.Tour;
+import org.politechnika.util.ParallelArgMin;
+
+import java.util.stream.IntStream;
+
+
+/**
+ * Cheapest (and optionally second cheapest) insertion of every node outside a tour under
+ * construction. A slot is identified by the tour node it follows, open paths also have a slot in
+ * front of the first node. Every node keeps a short sorted list of its cheapest slots of which a
+ * prefix is known to be exact; an insertion splits one slot into two, which are added where they
+ * rank inside the exact prefix. A node only rescans the tour once its exact prefix becomes too
+ * short, so a construction costs about O(n^2) instead of O(n^3).
+ * <p>
+ * Ties are resolved as a full scan in tour order would: slots are ordered by increase and then by
+ * position. Entries of different nodes are independent, so the parallel mode spreads the updates
+ * over the ForkJoin pool and ends in the same state.
+ */
+public class InsertionTable {
+    private static final int BLOCK_SIZE = 1024;
+    private static final int LIST_SIZE = 6;
+
+    private final Instance instance;
+    private final int needed;
+    private final boolean closed;
+    private final int front;
+    private final boolean parallel;
+    private Tour tour;
+
+    // per node: LIST_SIZE slots and increases sorted by (increase, position)
+    private final int[] listSlot;
+    private final int[] listValue;
+    private final byte[] listLength;
+    // length of the prefix known to be the cheapest slots of the whole tour
+    private final byte[] exact;
+    // the list holds every slot of the tour
+    private final boolean[] complete;
+
+    // rows of the split slot, the inserted node and the node after it
+    private final int[] slotRow;
+    private final int[] nodeRow;
+    private final int[] nextRow;
+    private int nextNode;
+
+    private final int[] changed;
+    private final int[] blockChanged;
+    private int changedCount;
+
+    public InsertionTable(Instance instance, boolean trackSecond, boolean closed) {
+        this(instance, trackSecond, closed, false);
+    }
+
+    // parallel updates only kick in from ParallelArgMin.PARALLEL_THRESHOLD nodes
+    public InsertionTable(Instance instance, boolean trackSecond, boolean closed, boolean parallel) {
+        int totalNodes = instance.getTotalNodes();
+        this.instance = instance;
+        this.needed = trackSecond ? 2 : 1;
+        this.closed = closed;
+        this.front = totalNodes;
+        this.parallel = parallel && totalNodes >= ParallelArgMin.PARALLEL_THRESHOLD;
+        this.listSlot = new int[totalNodes * LIST_SIZE];
+        this.listValue = new int[totalNodes * LIST_SIZE];
+        this.listLength = new byte[totalNodes];
+        this.exact = new byte[totalNodes];
+        this.complete = new boolean[totalNodes];
+        this.slotRow = new int[totalNodes];
+        this.nodeRow = new int[totalNodes];
+        this.nextRow = new int[totalNodes];
+        this.changed = new int[totalNodes];
+        this.blockChanged = new int[(totalNodes + BLOCK_SIZE - 1) / BLOCK_SIZE];
+    }
+
+    // a closed cycle needs at least one node
+    public void start(Tour tour) {
+        this.tour = tour;
+        if (parallel) {
+            IntStream.range(0, front).parallel().filter(nodeId -> !tour.contains(nodeId)).forEach(this::rescan);
+            return;
+        }
+        for (int nodeId = 0; nodeId < front; nodeId++) {
+            if (!tour.contains(nodeId)) {
+                rescan(nodeId);
+            }
+        }
+    }
+
+    public int bestIncrease(int nodeId) {
+        return listValue[nodeId * LIST_SIZE];
+    }
+
+    // equal to the best increase when two slots tie, MAX_VALUE with a single slot
+    public int secondIncrease(int nodeId) {
+        return listLength[nodeId] > 1 ? listValue[nodeId * LIST_SIZE + 1] : Integer.MAX_VALUE;
+    }
+
+    public void insert(int nodeId) {
+        int slot = listSlot[nodeId * LIST_SIZE];
+        tour.insert(slotIndex(slot), nodeId);
+        loadRows(slot, nodeId);
+
+        if (!parallel) {
+            changedCount = update(0, front, slot, nodeId);
+            return;
+        }
+        IntStream.range(0, blockChanged.length).parallel().forEach(block -> blockChanged[block] =
+                update(block * BLOCK_SIZE, Math.min(front, (block + 1) * BLOCK_SIZE), slot, nodeId));
+        changedCount = 0;
+        for (int block = 0; block < blockChanged.length; block++) {
+            System.arraycopy(changed, block * BLOCK_SIZE, changed, changedCount, blockChanged[block]);
+            changedCount += blockChanged[block];
+        }
+    }
+
+    // nodes whose best or second increase may have changed during the last insertion
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public int getChangedNode(int index) {
+        return changed[index];
+    }
+
+    // changed entries of [from, to) are written to changed from index from, returns their count
+    private int update(int from, int to, int slot, int nodeId) {
+        int count = 0;
+        for (int other = from; other < to; other++) {
+            if (tour.contains(other)) continue;
+            int base = other * LIST_SIZE;
+            int best = listValue[base];
+            int second = secondIncrease(other);
+
+            remove(other, slot);
+            add(other, slot, splitIncrease(slot, nodeId, other));
+            add(other, nodeId, insertedIncrease(other));
+            if (exact[other] < needed && !complete[other]) {
+                rescan(other);
+            }
+
+            if (listValue[base] != best || (needed == 2 && secondIncrease(other) != second)) {
+                changed[from + count++] = other;
+            }
+        }
+        return count;
+    }
+
+    private void remove(int nodeId, int slot) {
+        int base = nodeId * LIST_SIZE;
+        int length = listLength[nodeId];
+        for (int k = 0; k < length; k++) {
+            if (listSlot[base + k] != slot) continue;
+            System.arraycopy(listSlot, base + k + 1, listSlot, base + k, length - k - 1);
+            System.arraycopy(listValue, base + k + 1, listValue, base + k, length - k - 1);
+            listLength[nodeId]--;
+            if (k < exact[nodeId]) exact[nodeId]--;
+            return;
+        }
+    }
+
+    // a complete list takes the slot anywhere, otherwise only inside the exact prefix since unknown
+    // slots may rank between the prefix and the rest
+    private void add(int nodeId, int slot, int value) {
+        int base = nodeId * LIST_SIZE;
+        int length = listLength[nodeId];
+        int rank = 0;
+        int index = slotIndex(slot);
+        while (rank < length && (listValue[base + rank] < value
+                || (listValue[base + rank] == value && slotIndex(listSlot[base + rank]) < index))) {
+            rank++;
+        }
+        if (!complete[nodeId] && rank >= exact[nodeId]) {
+            return;
+        }
+        if (length == LIST_SIZE) {
+            if (rank == LIST_SIZE) {
+                complete[nodeId] = false;
+                return;
+            }
+            length--;
+            complete[nodeId] = false;
+        }
+        System.arraycopy(listSlot, base + rank, listSlot, base + rank + 1, length - rank);
+        System.arraycopy(listValue, base + rank, listValue, base + rank + 1, length - rank);
+        listSlot[base + rank] = slot;
+        listValue[base + rank] = value;
+        listLength[nodeId] = (byte) (length + 1);
+        exact[nodeId] = (byte) Math.min(exact[nodeId] + 1, length + 1);
+    }
+
+    private int slotIndex(int slot) {
+        return slot == front ? 0 : tour.positionOf(slot) + 1;
+    }
+
+    private void loadRows(int slot, int nodeId) {
+        instance.getDistanceRow(nodeId, nodeRow);
+        if (slot != front) {
+            instance.getDistanceRow(slot, slotRow);
+        }
+        int index = tour.positionOf(nodeId);
+        nextNode = index + 1 == tour.size() && !closed ? -1 : tour.nextNode(index);
+        if (nextNode >= 0) {
+            instance.getDistanceRow(nextNode, nextRow);
+        }
+    }
+
+    // increase of the split slot, now followed by the inserted node, read from the loaded rows
+    private int splitIncrease(int slot, int nodeId, int other) {
+        int cost = instance.getCost(other);
+        if (slot == front) {
+            return cost + nodeRow[other];
+        }
+        return cost + slotRow[other] + nodeRow[other] - slotRow[nodeId];
+    }
+
+    // increase of the slot after the inserted node
+    private int insertedIncrease(int other) {
+        int cost = instance.getCost(other);
+        if (nextNode < 0) {
+            return cost + nodeRow[other];
+        }
+        return cost + nodeRow[other] + nextRow[other] - nodeRow[nextNode];
+    }
+
+    // distances are read as (tour node, node), the same entries the rows of the tour nodes hold
+    private int increase(int slot, int nodeId) {
+        int size = tour.size();
+        int cost = instance.getCost(nodeId);
+        if (slot == front) {
+            return size == 0 ? cost : cost + instance.getDistance(tour.getNodeAt(0), nodeId);
+        }
+        int index = tour.positionOf(slot);
+        if (index + 1 == size && !closed) {
+            return cost + instance.getDistance(slot, nodeId);
+        }
+        int next = tour.nextNode(index);
+        return cost + instance.getDistance(slot, nodeId) + instance.getDistance(next, nodeId)
+                - instance.getDistance(slot, next);
+    }
+
+    // a later slot only displaces a strictly cheaper entry, so equal increases keep tour order
+    private void rescan(int nodeId) {
+        int base = nodeId * LIST_SIZE;
+        int length = 0;
+        int first = closed ? 0 : -1;
+        for (int i = first; i < tour.size(); i++) {
+            int slot = i < 0 ? front : tour.getNodeAt(i);
+            int value = increase(slot, nodeId);
+            if (length == LIST_SIZE && value >= listValue[base + LIST_SIZE - 1]) continue;
+            int rank = length == LIST_SIZE ? LIST_SIZE - 1 : length++;
+            while (rank > 0 && listValue[base + rank - 1] > value) {
+                listSlot[base + rank] = listSlot[base + rank - 1];
+                listValue[base + rank] = listValue[base + rank - 1];
+                rank--;
+            }
+            listSlot[base + rank] = slot;
+            listValue[base + rank] = value;
+        }
+        int slots = tour.size() - first;
+        listLength[nodeId] = (byte) length;
+        exact[nodeId] = (byte) length;
+        complete[nodeId] = slots == length;
+    }
+}
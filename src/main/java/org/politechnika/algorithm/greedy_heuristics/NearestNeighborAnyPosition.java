@@ -3,60 +3,56 @@ package org.politechnika.algorithm.greedy_heuristics;
 import org.politechnika.algorithm.Algorithm;
 import org.politechnika.model.Instance;
 import org.politechnika.model.Solution;
+import org.politechnika.model.Tour;
 import org.politechnika.util.ObjectiveFunction;
+import org.politechnika.util.ParallelArgMin;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 
 public class NearestNeighborAnyPosition implements Algorithm {
+    private final boolean parallel;
+
+    public NearestNeighborAnyPosition() {
+        this(false);
+    }
+
+    public NearestNeighborAnyPosition(boolean parallel) {
+        this.parallel = parallel;
+    }
 
     @Override
     public Solution solve(Instance instance, int startNode) {
         int nodesToSelect = instance.getNodesToSelect();
-        List<Integer> path = new ArrayList<>();
-        Set<Integer> visited = new HashSet<>();
-
-        path.add(startNode);
-        visited.add(startNode);
-
-        while (path.size() < nodesToSelect) {
-            int bestNode = -1;
-            int bestPosition = -1;
-            double bestIncrease = Double.MAX_VALUE;
+        Tour tour = new Tour(instance.getTotalNodes());
+        tour.append(startNode);
 
-            for (int candidateNode = 0; candidateNode < instance.getTotalNodes(); candidateNode++) {
-                if (visited.contains(candidateNode)) {
-                    continue;
-                }
+        // cheapest position of every candidate on the open path, see ObjectiveFunction.calculateInsertionCost
+        InsertionTable table = new InsertionTable(instance, false, false, parallel);
+        table.start(tour);
 
-                for (int position = 0; position <= path.size(); position++) {
-                    double increase = ObjectiveFunction.calculateInsertionCost(
-                            instance, path, candidateNode, position);
-
-                    if (increase < bestIncrease) {
-                        bestIncrease = increase;
-                        bestNode = candidateNode;
-                        bestPosition = position;
-                    }
-                }
-            }
+        while (tour.size() < nodesToSelect) {
+            int bestNode = ParallelArgMin.argMin(instance.getTotalNodes(),
+                    candidateNode -> !tour.contains(candidateNode), table::bestIncrease, parallel);
 
             if (bestNode == -1) {
                 throw new RuntimeException("Could not find next node to add");
             }
 
-            path.add(bestPosition, bestNode);
-            visited.add(bestNode);
+            table.insert(bestNode);
         }
 
+        List<Integer> path = tour.toList();
         double objectiveValue = ObjectiveFunction.calculate(instance, path);
 
         return new Solution(path, objectiveValue, getName(), startNode);
     }
 
+    @Override
+    public boolean solvesAllInParallel() {
+        return true;
+    }
+
     @Override
     public String getName() {
         return "Nearest Neighbor (Any Position)";
@@ -1,25 +1,32 @@
 package org.politechnika.algorithm.greedy_regret;
 
 import org.politechnika.algorithm.Algorithm;
+import org.politechnika.algorithm.greedy_heuristics.InsertionTable;
 import org.politechnika.model.Instance;
 import org.politechnika.model.Solution;
+import org.politechnika.model.Tour;
+import org.politechnika.util.IndexedMinHeap;
 import org.politechnika.util.ObjectiveFunction;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public class RegretK2NNAny implements Algorithm {
     double greedWeight;
     double regretWeight;
+    private final boolean parallel;
 
     public RegretK2NNAny(double greedWeight, double regretWeight) {
+        this(greedWeight, regretWeight, false);
+    }
+
+    public RegretK2NNAny(double greedWeight, double regretWeight, boolean parallel) {
         if (greedWeight < 0 || regretWeight < 0) {
             throw new IllegalArgumentException("Arguments need to be greater or equal 0!");
         }
         this.greedWeight = greedWeight;
         this.regretWeight = -1.0*regretWeight;
+        this.parallel = parallel;
     }
 
     @Override
@@ -30,61 +37,54 @@ public class RegretK2NNAny implements Algorithm {
     }
 
     public Solution solveFromPartialSolution(Instance instance, List<Integer> partialSolution, int startNode) {
+        Tour tour = Tour.of(instance, partialSolution, 0);
+        repair(instance, tour);
+        return tour.toSolution(getName(), startNode);
+    }
+
+    // completes the partial path in place; only nodes whose insertions changed are rescored in the
+    // heap
+    public void repair(Instance instance, Tour tour) {
         int nodesToSelect = instance.getNodesToSelect();
-        List<Integer> path = new ArrayList<>(partialSolution);
-        Set<Integer> visited = new HashSet<>(partialSolution);
-
-        while (path.size() < nodesToSelect) {
-            int bestNode = -1;
-            int bestPosition = -1;
-            double bestScore = Double.MAX_VALUE;
-
-            for (int candidateNode = 0; candidateNode < instance.getTotalNodes(); candidateNode++) {
-                if (visited.contains(candidateNode)) {
-                    continue;
-                }
-
-                double bestIncrease = Double.MAX_VALUE;
-                double secondBestIncrease = Double.MAX_VALUE;
-
-                int bestLocalPosition = -1;
-
-                for (int position = 0; position <= path.size(); position++) {
-                    double increase = ObjectiveFunction.calculateInsertionCost(
-                            instance, path, candidateNode, position);
-
-                    if (increase < bestIncrease) {
-                        secondBestIncrease = bestIncrease;
-                        bestIncrease = increase;
-
-                        bestLocalPosition = position;
-                    }
-                    else if (increase < secondBestIncrease) {
-                        secondBestIncrease = increase;
-                    }
-
-                }
-
-                double regret = secondBestIncrease - bestIncrease;
-                double score = this.regretWeight*regret + this.greedWeight*bestIncrease;
-                if (score < bestScore) {
-                    bestScore = score;
-                    bestPosition = bestLocalPosition;
-                    bestNode = candidateNode;
-                }
+        InsertionTable table = new InsertionTable(instance, true, false, parallel);
+        IndexedMinHeap heap = new IndexedMinHeap(instance.getTotalNodes());
+
+        table.start(tour);
+        for (int candidateNode = 0; candidateNode < instance.getTotalNodes(); candidateNode++) {
+            if (!tour.contains(candidateNode)) {
+                heap.update(candidateNode, score(table, candidateNode));
             }
+        }
 
-            if (bestNode == -1) {
+        while (tour.size() < nodesToSelect) {
+            if (heap.isEmpty()) {
                 throw new RuntimeException("Could not find next node to add");
             }
 
-            path.add(bestPosition, bestNode);
-            visited.add(bestNode);
+            int bestNode = heap.poll();
+            table.insert(bestNode);
+
+            for (int k = 0; k < table.getChangedCount(); k++) {
+                int candidateNode = table.getChangedNode(k);
+                heap.update(candidateNode, score(table, candidateNode));
+            }
         }
 
-        double objectiveValue = ObjectiveFunction.calculate(instance, path);
+        tour.setObjectiveValue(ObjectiveFunction.calculate(instance, tour));
+    }
+
+    private double score(InsertionTable table, int candidateNode) {
+        double bestIncrease = table.bestIncrease(candidateNode);
+        int second = table.secondIncrease(candidateNode);
+        double secondBestIncrease = second == Integer.MAX_VALUE ? Double.MAX_VALUE : second;
 
-        return new Solution(path, objectiveValue, getName(), startNode);
+        double regret = secondBestIncrease - bestIncrease;
+        return this.regretWeight*regret + this.greedWeight*bestIncrease;
+    }
+
+    @Override
+    public boolean solvesAllInParallel() {
+        return true;
     }
 
     @Override
@@ -1,182 +1,239 @@
 package org.politechnika.algorithm.local_search;
 
-import org.politechnika.algorithm.local_search.route_moves.ReplaceNode;
-import org.politechnika.algorithm.local_search.route_moves.RouteMove;
-import org.politechnika.algorithm.local_search.route_moves.SwapEdges;
-import org.politechnika.algorithm.local_search.route_moves.SwapNodes;
+import org.politechnika.algorithm.local_search.route_moves.PackedMoves;
 import org.politechnika.model.Instance;
-import org.politechnika.model.Solution;
+import org.politechnika.model.TourView;
 import org.politechnika.util.CandidateEdges;
 
-import java.util.*;
-
-
-public class CandidateNeighborhood implements Iterator<RouteMove> {
-
-    private int generatedMemberCount;
-    private final ArrayList<RouteMove> routeMoves;
-
-    public CandidateNeighborhood(Solution solution, Instance instance, String intraRoute, CandidateEdges candidateEdges) {
-        this.routeMoves = new ArrayList<>();
-        HashSet<Integer> usedNodes = new HashSet<>(solution.getNodeIds());
-        List<Integer> nodeIds = solution.getNodeIds();
-
-        // Generate inter-route moves (ReplaceNode) using candidate edges
-        for (int i = 0; i < nodeIds.size(); i++) {
-            Integer nodeId = nodeIds.get(i);
-            
-            // Get previous and next nodes in the tour
-            int prevIdx = (i == 0) ? nodeIds.size() - 1 : i - 1;
-            int nextIdx = (i == nodeIds.size() - 1) ? 0 : i + 1;
-            Integer prevNode = nodeIds.get(prevIdx);
-            Integer nextNode = nodeIds.get(nextIdx);
-
-            Set<Integer> candidatesToTry = new HashSet<>();
-            
-            // Add candidates of the current node being replaced
-            candidatesToTry.addAll(candidateEdges.getCandidateNeighbors(nodeId));
-            
-            // Add candidates of the previous node (creates edge prev->candidate)
-            candidatesToTry.addAll(candidateEdges.getCandidateNeighbors(prevNode));
-            
-            // Add candidates of the next node (creates edge candidate->next)
-            candidatesToTry.addAll(candidateEdges.getCandidateNeighbors(nextNode));
-
-            for (Integer candidateNode : candidatesToTry) {
-                if (!usedNodes.contains(candidateNode)) {
-                    routeMoves.add(new ReplaceNode(i, candidateNode));
-                }
+import java.util.Arrays;
+import java.util.Objects;
+
+
+/**
+ * Candidate moves kept between the steps of a steepest local search. Every move belongs to a (node,
+ * candidate slot) pair; after a move only pairs within one edge of a changed node are evaluated
+ * again, the remaining improving moves stay in the {@link MoveList}.
+ */
+public class CandidateNeighborhood {
+
+    private static final int MOVES_PER_PAIR = 6;
+
+    private final Instance instance;
+    private final boolean edgeSwaps;
+    private final int[][] candidates;
+    private final int slotsPerNode;
+    private final int[] reverseStart;
+    private final int[] reverseNodes;
+    private final int[] reverseSlots;
+
+    private final long[] pairBits;
+    private int[] markedPairs = new int[64];
+    private int markedCount;
+
+    private final MoveList moves = new MoveList();
+    private final long[] pairMoves = new long[MOVES_PER_PAIR];
+    private final int[] pairDeltas = new int[MOVES_PER_PAIR];
+    private final int[] region = new int[3 * MOVES_PER_PAIR];
+
+    public CandidateNeighborhood(Instance instance, String intraRoute, CandidateEdges candidateEdges) {
+        if (!Objects.equals(intraRoute, "edge") && !Objects.equals(intraRoute, "node")) {
+            throw new RuntimeException("Unknown intraRoute: " + intraRoute);
+        }
+        this.instance = instance;
+        this.edgeSwaps = Objects.equals(intraRoute, "edge");
+
+        int totalNodes = instance.getTotalNodes();
+        this.candidates = new int[totalNodes][];
+        int maxSlots = 0;
+        int[] reverseCount = new int[totalNodes + 1];
+        for (int nodeId = 0; nodeId < totalNodes; nodeId++) {
+            candidates[nodeId] = candidateEdges.getCandidateNeighbors(nodeId);
+            for (int candidate : candidates[nodeId]) {
+                reverseCount[candidate + 1]++;
             }
+            maxSlots = Math.max(maxSlots, candidates[nodeId].length);
         }
+        this.slotsPerNode = maxSlots;
 
-        if (Objects.equals(intraRoute, "edge")) {
-            generateCandidateEdgeSwaps(nodeIds, candidateEdges);
-        } else if (Objects.equals(intraRoute, "node")) {
-            generateCandidateNodeSwaps(nodeIds, candidateEdges);
-        } else {
-            throw new RuntimeException("Unknown intraRoute: " + intraRoute);
+        this.reverseStart = new int[totalNodes + 1];
+        for (int nodeId = 0; nodeId < totalNodes; nodeId++) {
+            reverseStart[nodeId + 1] = reverseStart[nodeId] + reverseCount[nodeId + 1];
+        }
+        this.reverseNodes = new int[reverseStart[totalNodes]];
+        this.reverseSlots = new int[reverseStart[totalNodes]];
+        int[] fill = Arrays.copyOf(reverseStart, totalNodes);
+        for (int nodeId = 0; nodeId < totalNodes; nodeId++) {
+            for (int slot = 0; slot < candidates[nodeId].length; slot++) {
+                int candidate = candidates[nodeId][slot];
+                reverseNodes[fill[candidate]] = nodeId;
+                reverseSlots[fill[candidate]++] = slot;
+            }
         }
+
+        this.pairBits = new long[(totalNodes * slotsPerNode + 63) >>> 6];
     }
 
-    private void generateCandidateEdgeSwaps(List<Integer> nodeIds, CandidateEdges candidateEdges) {
-        // Create position map for O(1) lookup
-        Map<Integer, Integer> nodeToPosition = new HashMap<>();
-        for (int i = 0; i < nodeIds.size(); i++) {
-            nodeToPosition.put(nodeIds.get(i), i);
-        }
-        
-        // For each position i, find positions j where swapping introduces a candidate edge
-        // After edge swap between i and j: new edges are (prev_i, nodeJ) and (nodeI, next_j)
-        for (int i = 0; i < nodeIds.size(); i++) {
-            Integer nodeI = nodeIds.get(i);
-            int prevI = (i == 0) ? nodeIds.size() - 1 : i - 1;
-            Integer prevNodeI = nodeIds.get(prevI);
-            
-            // Find positions of candidate neighbors that could create edge (prev_i -> nodeJ)
-            for (Integer candidateNode : candidateEdges.getCandidateNeighbors(prevNodeI)) {
-                Integer pos = nodeToPosition.get(candidateNode);
-                if (pos != null && pos > i && pos < nodeIds.size() - 1) {
-                    routeMoves.add(new SwapEdges(i, pos));
-                }
-            }
-            
-            // Find positions where (nodeI -> next_j) would be a candidate edge
-            // Check all candidate neighbors of nodeI
-            for (Integer candidateNode : candidateEdges.getCandidateNeighbors(nodeI)) {
-                // We need candidateNode to be at position next_j
-                // So find where candidateNode is, and check if it's a next position
-                Integer pos = nodeToPosition.get(candidateNode);
-                if (pos != null && pos > 0) {
-                    int j = pos - 1;  // j is the position where next_j = pos
-                    if (j > i && j < nodeIds.size() - 1) {
-                        routeMoves.add(new SwapEdges(i, j));
-                    }
-                }
+    public void reset(TourView tour) {
+        moves.reset(instance.getTotalNodes());
+        for (int nodeId = 0; nodeId < candidates.length; nodeId++) {
+            for (int slot = 0; slot < candidates[nodeId].length; slot++) {
+                evaluatePair(tour, nodeId, candidates[nodeId][slot]);
             }
         }
     }
 
-    private void generateCandidateNodeSwaps(List<Integer> nodeIds, CandidateEdges candidateEdges) {
-        // Create position map for O(1) lookup
-        Map<Integer, Integer> nodeToPosition = new HashMap<>();
-        for (int i = 0; i < nodeIds.size(); i++) {
-            nodeToPosition.put(nodeIds.get(i), i);
-        }
-        
-        // For each position i, find positions j where swapping introduces a candidate edge
-        // After swapping nodes at i and j:
-        // - New edges around i: prevNodeI-nodeJ and nodeJ-nextNodeI
-        // - New edges around j: prevNodeJ-nodeI and nodeI-nextNodeJ
-        
-        Set<String> addedPairs = new HashSet<>();  // To avoid duplicates
-        
-        for (int i = 0; i < nodeIds.size(); i++) {
-            Integer nodeI = nodeIds.get(i);
-            
-            int prevI = (i == 0) ? nodeIds.size() - 1 : i - 1;
-            int nextI = (i == nodeIds.size() - 1) ? 0 : i + 1;
-            Integer prevNodeI = nodeIds.get(prevI);
-            Integer nextNodeI = nodeIds.get(nextI);
-            
-            // Check candidate neighbors of prevNodeI (creates edge prevNodeI -> nodeJ)
-            for (Integer nodeJ : candidateEdges.getCandidateNeighbors(prevNodeI)) {
-                Integer j = nodeToPosition.get(nodeJ);
-                if (j != null && j > i && j < nodeIds.size() - 1) {
-                    String key = i + "-" + j;
-                    if (!addedPairs.contains(key)) {
-                        routeMoves.add(new SwapNodes(i, j));
-                        addedPairs.add(key);
-                    }
-                }
+    // best improving move as a packed move, or -1 at a local optimum
+    public long pollBest(TourView tour) {
+        return moves.pollApplicable(tour);
+    }
+
+    // touchedNodes as reported by PackedMoves.touchedNodes
+    public void moveApplied(TourView tour, int[] touchedNodes, int count) {
+        moves.nextEpoch();
+        int regionSize = 0;
+        for (int k = 0; k < count; k++) {
+            int nodeId = touchedNodes[k];
+            moves.markChanged(nodeId);
+            region[regionSize++] = nodeId;
+            int index = tour.positionOf(nodeId);
+            if (index >= 0) {
+                region[regionSize++] = tour.prevNode(index);
+                region[regionSize++] = tour.nextNode(index);
             }
-            
-            // Check candidate neighbors of nextNodeI (creates edge nodeJ -> nextNodeI)
-            for (Integer nodeJ : candidateEdges.getCandidateNeighbors(nextNodeI)) {
-                Integer j = nodeToPosition.get(nodeJ);
-                if (j != null && j > i && j < nodeIds.size() - 1) {
-                    String key = i + "-" + j;
-                    if (!addedPairs.contains(key)) {
-                        routeMoves.add(new SwapNodes(i, j));
-                        addedPairs.add(key);
-                    }
-                }
+        }
+
+        for (int k = 0; k < regionSize; k++) {
+            int nodeId = region[k];
+            for (int slot = 0; slot < candidates[nodeId].length; slot++) {
+                markPair(nodeId, slot);
             }
-            
-            // Check where nodeI could go (creates edges around position j)
-            for (Integer candidateOfI : candidateEdges.getCandidateNeighbors(nodeI)) {
-                // If nodeI moves to position j, it needs to create candidate edge with neighbors of j
-                Integer j = nodeToPosition.get(candidateOfI);
-                if (j != null && j > i && j < nodeIds.size() - 1) {
-                    int prevJ = (j == 0) ? nodeIds.size() - 1 : j - 1;
-                    int nextJ = (j == nodeIds.size() - 1) ? 0 : j + 1;
-                    Integer prevNodeJ = nodeIds.get(prevJ);
-                    Integer nextNodeJ = nodeIds.get(nextJ);
-                    
-                    // Check if nodeI is candidate of prevNodeJ or nextNodeJ
-                    if (candidateEdges.isCandidate(prevNodeJ, nodeI) || 
-                        candidateEdges.isCandidate(nodeI, nextNodeJ)) {
-                        String key = i + "-" + j;
-                        if (!addedPairs.contains(key)) {
-                            routeMoves.add(new SwapNodes(i, j));
-                            addedPairs.add(key);
-                        }
-                    }
-                }
+            for (int r = reverseStart[nodeId]; r < reverseStart[nodeId + 1]; r++) {
+                markPair(reverseNodes[r], reverseSlots[r]);
             }
         }
+
+        for (int k = 0; k < markedCount; k++) {
+            int pair = markedPairs[k];
+            pairBits[pair >>> 6] &= ~(1L << pair);
+            int nodeId = pair / slotsPerNode;
+            evaluatePair(tour, nodeId, candidates[nodeId][pair % slotsPerNode]);
+        }
+        markedCount = 0;
     }
 
-    @Override
-    public boolean hasNext() {
-        return generatedMemberCount < routeMoves.size();
+    private void markPair(int nodeId, int slot) {
+        int pair = nodeId * slotsPerNode + slot;
+        long bit = 1L << pair;
+        if ((pairBits[pair >>> 6] & bit) != 0) return;
+        pairBits[pair >>> 6] |= bit;
+        if (markedCount == markedPairs.length) {
+            markedPairs = Arrays.copyOf(markedPairs, 2 * markedPairs.length);
+        }
+        markedPairs[markedCount++] = pair;
+    }
+
+    private void evaluatePair(TourView tour, int nodeId, int candidate) {
+        int index = tour.positionOf(nodeId);
+        int candidateIndex = tour.positionOf(candidate);
+        if (edgeSwaps && index >= 0 && candidateIndex >= 0) {
+            evaluateEdgeSwaps(tour, nodeId, index, candidate, candidateIndex);
+            return;
+        }
+
+        int count = pairMoves(tour, edgeSwaps, nodeId, candidate, pairMoves, 0);
+        PackedMoves.evaluate(pairMoves, count, tour, instance, pairDeltas);
+        for (int k = 0; k < count; k++) {
+            if (pairDeltas[k] >= 0) continue;
+            long move = pairMoves[k];
+            int first = PackedMoves.first(move);
+            int second = PackedMoves.second(move);
+            if (PackedMoves.type(move) == PackedMoves.REPLACE_NODE) {
+                moves.add(PackedMoves.REPLACE_NODE, tour.prevNode(first), tour.getNodeAt(first),
+                        tour.nextNode(first), second, pairDeltas[k]);
+            } else {
+                moves.add(PackedMoves.SWAP_NODES, tour.getNodeAt(first), tour.getNodeAt(second),
+                        -1, -1, pairDeltas[k]);
+            }
+        }
     }
 
-    @Override
-    public RouteMove next() {
-        return routeMoves.get(generatedMemberCount++);
+    // all four reconnections are stored: the two that do not apply now become applicable when a
+    // reversal elsewhere flips one of the edges, the list checks the orientation when polling
+    private void evaluateEdgeSwaps(TourView tour, int nodeId, int index, int candidate, int candidateIndex) {
+        if (tour.prevNode(index) == candidate || tour.nextNode(index) == candidate) return;
+
+        int added = instance.getDistance(nodeId, candidate);
+        for (int side = 0; side < 2; side++) {
+            int neighbor = side == 0 ? tour.prevNode(index) : tour.nextNode(index);
+            for (int candidateSide = 0; candidateSide < 2; candidateSide++) {
+                int candidateNeighbor = candidateSide == 0
+                        ? tour.prevNode(candidateIndex) : tour.nextNode(candidateIndex);
+                if (candidateNeighbor == neighbor) continue;
+                int delta = added + instance.getDistance(neighbor, candidateNeighbor)
+                        - instance.getDistance(nodeId, neighbor) - instance.getDistance(candidate, candidateNeighbor);
+                if (delta < 0) {
+                    moves.add(PackedMoves.SWAP_EDGES, nodeId, neighbor, candidate, candidateNeighbor, delta);
+                }
+            }
+        }
     }
-    
-    public int size() {
-        return routeMoves.size();
+
+    // writes at most six moves from offset and returns the new count
+    static int pairMoves(TourView tour, boolean edgeSwaps, int nodeId, int candidate, long[] moves, int offset) {
+        int index = tour.positionOf(nodeId);
+        int candidateIndex = tour.positionOf(candidate);
+        int count = offset;
+
+        if (index < 0) {
+            // node outside: put it next to the candidate
+            if (candidateIndex >= 0) {
+                moves[count++] = PackedMoves.replaceNode(tour.prevIndex(candidateIndex), nodeId);
+                moves[count++] = PackedMoves.replaceNode(tour.nextIndex(candidateIndex), nodeId);
+            }
+            return count;
+        }
+        if (candidateIndex < 0) {
+            moves[count++] = PackedMoves.replaceNode(tour.prevIndex(index), candidate);
+            moves[count++] = PackedMoves.replaceNode(tour.nextIndex(index), candidate);
+            moves[count++] = PackedMoves.replaceNode(index, candidate);
+            return count;
+        }
+
+        int prevIndex = tour.prevIndex(index);
+        int nextIndex = tour.nextIndex(index);
+        int candidatePrevIndex = tour.prevIndex(candidateIndex);
+        int candidateNextIndex = tour.nextIndex(candidateIndex);
+
+        if (edgeSwaps) {
+            // node -> next with candidate -> its next, and prev -> node with the edge entering the candidate
+            if (candidateIndex != nextIndex && candidateNextIndex != index) {
+                moves[count++] = PackedMoves.swapEdgesAfter(tour, nodeId, candidate);
+            }
+            if (candidateIndex != prevIndex && candidatePrevIndex != index) {
+                moves[count++] = PackedMoves.swapEdgesAfter(tour, tour.getNodeAt(prevIndex),
+                        tour.getNodeAt(candidatePrevIndex));
+            }
+        } else {
+            // move the node next to the candidate or the candidate next to the node
+            if (candidatePrevIndex != index) moves[count++] = PackedMoves.swapNodes(index, candidatePrevIndex);
+            if (candidateNextIndex != index) moves[count++] = PackedMoves.swapNodes(index, candidateNextIndex);
+            if (prevIndex != candidateIndex) moves[count++] = PackedMoves.swapNodes(candidateIndex, prevIndex);
+            if (nextIndex != candidateIndex) moves[count++] = PackedMoves.swapNodes(candidateIndex, nextIndex);
+        }
+        return count;
+    }
+
+    // used with don't-look bits, the buffer needs room for 6 moves per candidate
+    public static int movesAround(TourView tour, String intraRoute, CandidateEdges candidateEdges,
+                                  int nodeId, long[] moves) {
+        if (!Objects.equals(intraRoute, "edge") && !Objects.equals(intraRoute, "node")) {
+            throw new RuntimeException("Unknown intraRoute: " + intraRoute);
+        }
+        boolean edgeSwaps = Objects.equals(intraRoute, "edge");
+        int count = 0;
+        for (int candidate : candidateEdges.getCandidateNeighbors(nodeId)) {
+            count = pairMoves(tour, edgeSwaps, nodeId, candidate, moves, count);
+        }
+        return count;
     }
 }
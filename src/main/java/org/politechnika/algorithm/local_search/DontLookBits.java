@@ -0,0 +1,52 @@
+package org.politechnika.algorithm.local_search;
+
+import org.politechnika.model.TourView;
+
+
+/**
+ * Don't-look bits kept as a FIFO queue of active nodes. A node is switched off when none of its
+ * moves improves and on again when a move or perturbation changes one of its edges.
+ */
+public class DontLookBits {
+    private final int[] queue;
+    private final boolean[] active;
+    private int head;
+    private int count;
+
+    public DontLookBits(int totalNodes) {
+        this.queue = new int[totalNodes];
+        this.active = new boolean[totalNodes];
+    }
+
+    public void activate(int nodeId) {
+        if (active[nodeId]) return;
+        active[nodeId] = true;
+        int tail = head + count;
+        queue[tail >= queue.length ? tail - queue.length : tail] = nodeId;
+        count++;
+    }
+
+    public void activateAll(TourView tour) {
+        for (int i = 0; i < tour.size(); i++) {
+            activate(tour.getNodeAt(i));
+        }
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int poll() {
+        int nodeId = queue[head];
+        head = head + 1 == queue.length ? 0 : head + 1;
+        count--;
+        active[nodeId] = false;
+        return nodeId;
+    }
+
+    public void clear() {
+        while (!isEmpty()) {
+            poll();
+        }
+    }
+}
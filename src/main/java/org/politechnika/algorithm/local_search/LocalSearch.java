@@ -1,75 +1,143 @@
 package org.politechnika.algorithm.local_search;
 
 import org.politechnika.algorithm.Algorithm;
-import org.politechnika.algorithm.local_search.route_moves.RouteMove;
+import org.politechnika.algorithm.local_search.route_moves.PackedMoves;
 import org.politechnika.model.Instance;
 import org.politechnika.model.Solution;
+import org.politechnika.model.Tour;
 
-import javax.swing.plaf.synth.SynthTextAreaUI;
+import java.util.Random;
 
 public class LocalSearch implements Algorithm {
     Algorithm seeder;
     private final String intraRoute;
     private final String strategy;
+    private final boolean useDontLookBits;
     public LocalSearch(Algorithm seeder, String intraRoute, String strategy) {
+        this(seeder, intraRoute, strategy, false);
+    }
+
+    public LocalSearch(Algorithm seeder, String intraRoute, String strategy, boolean useDontLookBits) {
         this.seeder = seeder;
         this.intraRoute = intraRoute;
         this.strategy = strategy;
+        this.useDontLookBits = useDontLookBits;
     }
 
-    private Solution bestGreedy(Solution solution, Instance instance) {
-        Neighborhood nb = new Neighborhood(solution,instance,intraRoute);
-        while (nb.hasNext()) {
-            RouteMove rm = nb.next();
-            double delta = rm.delta(solution, instance);
-            if (delta < 0) {
-                //System.out.printf("Found better solution %f -> %f%n",start.getObjectiveValue(),start.getObjectiveValue()+delta );
-                return rm.applyMove(solution, instance);
+    private static final int BATCH_SIZE = 1024;
+
+    protected final long[] moveBuffer = new long[BATCH_SIZE];
+    protected final int[] deltaBuffer = new int[BATCH_SIZE];
+    private long[] nodeMoveBuffer = new long[0];
+    private int[] nodeDeltaBuffer = new int[0];
+    private final int[] touchedNodes = new int[6];
+
+    private boolean bestGreedy(Tour tour, Instance instance, Random random) {
+        Neighborhood nb = new Neighborhood(tour,instance,intraRoute,random);
+        int count;
+        while ((count = nb.nextBatch(moveBuffer)) > 0) {
+            PackedMoves.evaluate(moveBuffer, count, tour, instance, deltaBuffer);
+            for (int k = 0; k < count; k++) {
+                if (deltaBuffer[k] < 0) {
+                    PackedMoves.apply(moveBuffer[k], tour, instance);
+                    return true;
+                }
             }
         }
-        return solution;
+        return false;
     }
 
-    protected Solution bestSteepest(Solution solution, Instance instance) {
-        Neighborhood nb = new Neighborhood(solution,instance,intraRoute);
-        double bestDelta = 0;
-        RouteMove bestMove = null;
+    protected boolean bestSteepest(Tour tour, Instance instance) {
+        Neighborhood nb = new Neighborhood(tour,instance,intraRoute);
+        int bestDelta = 0;
+        long bestMove = -1;
 
-        while (nb.hasNext()) {
-            RouteMove rm = nb.next();
-            double delta = rm.delta(solution, instance);
-            if (delta < bestDelta) {
-                //System.out.printf("Found better solution %f -> %f%n",start.getObjectiveValue(),start.getObjectiveValue()+delta );
-                bestDelta = delta;
-                bestMove = rm;
+        int count;
+        while ((count = nb.nextBatch(moveBuffer)) > 0) {
+            PackedMoves.evaluate(moveBuffer, count, tour, instance, deltaBuffer);
+            for (int k = 0; k < count; k++) {
+                if (deltaBuffer[k] < bestDelta) {
+                    bestDelta = deltaBuffer[k];
+                    bestMove = moveBuffer[k];
+                }
             }
         }
-        return bestMove == null? solution:bestMove.applyMove(solution, instance);
+        if (bestMove == -1) {
+            return false;
+        }
+        PackedMoves.apply(bestMove, tour, instance);
+        return true;
     }
-    @Override
-    public Solution solve(Instance instance, int startNode) {
-        Solution start = this.seeder.solve(instance, startNode);
-        start = new Solution(start.getNodeIds(),start.getObjectiveValue(),this.getName(),start.getStartNode());
-        boolean converged = false;
-        while (!converged) {
-            double lastScore = start.getObjectiveValue();
+
+    public void improve(Tour tour, Instance instance) {
+        if (useDontLookBits) {
+            DontLookBits dontLookBits = new DontLookBits(instance.getTotalNodes());
+            dontLookBits.activateAll(tour);
+            improve(tour, instance, dontLookBits);
+            return;
+        }
+        Random random = new Random(42);
+        boolean improved = true;
+        while (improved) {
             if (strategy.equals("greedy")) {
-                start = this.bestGreedy(start, instance);
+                improved = this.bestGreedy(tour, instance, random);
             }
             else if (strategy.equals("steepest")) {
-                start = this.bestSteepest(start, instance);
+                improved = this.bestSteepest(tour, instance);
             }
             else {
                 throw new RuntimeException("Unknown strategy: " + strategy);
             }
-            //System.out.println(start.getObjectiveValue());
-            converged = lastScore == start.getObjectiveValue();
         }
-        return start;
+    }
+
+    // only examines moves around active nodes and returns with all bits off
+    public void improve(Tour tour, Instance instance, DontLookBits dontLookBits) {
+        int capacity = 2 * instance.getTotalNodes();
+        if (nodeMoveBuffer.length < capacity) {
+            nodeMoveBuffer = new long[capacity];
+            nodeDeltaBuffer = new int[capacity];
+        }
+        boolean greedy = strategy.equals("greedy");
+        if (!greedy && !strategy.equals("steepest")) {
+            throw new RuntimeException("Unknown strategy: " + strategy);
+        }
+
+        while (!dontLookBits.isEmpty()) {
+            int nodeId = dontLookBits.poll();
+            int count = Neighborhood.movesAround(tour, instance, intraRoute, nodeId, nodeMoveBuffer);
+            PackedMoves.evaluate(nodeMoveBuffer, count, tour, instance, nodeDeltaBuffer);
+
+            int bestDelta = 0;
+            long bestMove = -1;
+            for (int k = 0; k < count; k++) {
+                if (nodeDeltaBuffer[k] < bestDelta) {
+                    bestDelta = nodeDeltaBuffer[k];
+                    bestMove = nodeMoveBuffer[k];
+                    if (greedy) break;
+                }
+            }
+            if (bestMove != -1) {
+                int touched = PackedMoves.touchedNodes(bestMove, tour, touchedNodes);
+                PackedMoves.apply(bestMove, tour, instance);
+                for (int k = 0; k < touched; k++) {
+                    dontLookBits.activate(touchedNodes[k]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Solution solve(Instance instance, int startNode) {
+        Solution start = this.seeder.solve(instance, startNode);
+        Tour tour = Tour.of(instance, start);
+        improve(tour, instance);
+        return tour.toSolution(this.getName(), start.getStartNode());
     }
 
     @Override
     public String getName() {
-        return String.format("Local Search - %s, %s swap, %s", seeder.getName(),intraRoute,strategy);
+        return String.format("Local Search - %s, %s swap, %s%s", seeder.getName(),intraRoute,strategy,
+                useDontLookBits ? ", DLB" : "");
     }
 }
@@ -1,9 +1,11 @@
 package org.politechnika.algorithm.local_search;
 
 import org.politechnika.algorithm.Algorithm;
-import org.politechnika.algorithm.local_search.route_moves.RouteMove;
+import org.politechnika.algorithm.local_search.route_moves.PackedMoves;
+import org.politechnika.io.ArtifactCache;
 import org.politechnika.model.Instance;
 import org.politechnika.model.Solution;
+import org.politechnika.model.Tour;
 import org.politechnika.util.CandidateEdges;
 
 
@@ -11,48 +13,89 @@ public class LocalSearchCandidate implements Algorithm {
     private final Algorithm seeder;
     private final String intraRoute;
     private final int candidateCount;
+    private final boolean useDontLookBits;
+    private long[] nodeMoveBuffer = new long[0];
+    private int[] nodeDeltaBuffer = new int[0];
+    private final int[] touchedNodes = new int[6];
+    private CandidateNeighborhood neighborhood;
+    private CandidateEdges neighborhoodEdges;
 
     public LocalSearchCandidate(Algorithm seeder, String intraRoute, int candidateCount) {
+        this(seeder, intraRoute, candidateCount, false);
+    }
+
+    public LocalSearchCandidate(Algorithm seeder, String intraRoute, int candidateCount, boolean useDontLookBits) {
         this.seeder = seeder;
         this.intraRoute = intraRoute;
         this.candidateCount = candidateCount;
+        this.useDontLookBits = useDontLookBits;
+    }
+
+    public void improve(Tour tour, Instance instance, CandidateEdges candidateEdges) {
+        if (useDontLookBits) {
+            DontLookBits dontLookBits = new DontLookBits(instance.getTotalNodes());
+            dontLookBits.activateAll(tour);
+            improve(tour, instance, candidateEdges, dontLookBits);
+            return;
+        }
+        if (neighborhood == null || neighborhoodEdges != candidateEdges) {
+            neighborhood = new CandidateNeighborhood(instance, intraRoute, candidateEdges);
+            neighborhoodEdges = candidateEdges;
+        }
+
+        neighborhood.reset(tour);
+        long move;
+        while ((move = neighborhood.pollBest(tour)) != -1) {
+            int touched = PackedMoves.touchedNodes(move, tour, touchedNodes);
+            PackedMoves.apply(move, tour, instance);
+            neighborhood.moveApplied(tour, touchedNodes, touched);
+        }
     }
 
-    private Solution bestSteepest(Solution solution, Instance instance, CandidateEdges candidateEdges) {
-        CandidateNeighborhood nb = new CandidateNeighborhood(solution, instance, intraRoute, candidateEdges);
-        double bestDelta = 0;
-        RouteMove bestMove = null;
-
-        while (nb.hasNext()) {
-            RouteMove rm = nb.next();
-            double delta = rm.delta(solution, instance);
-            if (delta < bestDelta) {
-                bestDelta = delta;
-                bestMove = rm;
+    // candidate moves of active nodes only, returns with all bits off
+    public void improve(Tour tour, Instance instance, CandidateEdges candidateEdges, DontLookBits dontLookBits) {
+        int capacity = 6 * candidateCount;
+        if (nodeMoveBuffer.length < capacity) {
+            nodeMoveBuffer = new long[capacity];
+            nodeDeltaBuffer = new int[capacity];
+        }
+
+        while (!dontLookBits.isEmpty()) {
+            int nodeId = dontLookBits.poll();
+            int count = CandidateNeighborhood.movesAround(tour, intraRoute, candidateEdges, nodeId, nodeMoveBuffer);
+            PackedMoves.evaluate(nodeMoveBuffer, count, tour, instance, nodeDeltaBuffer);
+
+            int bestDelta = 0;
+            long bestMove = -1;
+            for (int k = 0; k < count; k++) {
+                if (nodeDeltaBuffer[k] < bestDelta) {
+                    bestDelta = nodeDeltaBuffer[k];
+                    bestMove = nodeMoveBuffer[k];
+                }
+            }
+            if (bestMove != -1) {
+                int touched = PackedMoves.touchedNodes(bestMove, tour, touchedNodes);
+                PackedMoves.apply(bestMove, tour, instance);
+                for (int k = 0; k < touched; k++) {
+                    dontLookBits.activate(touchedNodes[k]);
+                }
             }
         }
-        return bestMove == null ? solution : bestMove.applyMove(solution, instance);
     }
 
     @Override
     public Solution solve(Instance instance, int startNode) {
-        CandidateEdges candidateEdges = new CandidateEdges(instance, candidateCount);
-        
+        CandidateEdges candidateEdges = ArtifactCache.candidateEdges(instance, candidateCount);
+
         Solution start = this.seeder.solve(instance, startNode);
-        start = new Solution(start.getNodeIds(), start.getObjectiveValue(), this.getName(), start.getStartNode());
-        
-        boolean converged = false;
-        while (!converged) {
-            double lastScore = start.getObjectiveValue();
-            start = this.bestSteepest(start, instance, candidateEdges);
-            converged = lastScore == start.getObjectiveValue();
-        }
-        return start;
+        Tour tour = Tour.of(instance, start);
+        improve(tour, instance, candidateEdges);
+        return tour.toSolution(this.getName(), start.getStartNode());
     }
 
     @Override
     public String getName() {
-        return String.format("Local Search Candidate - %s, %s swap, steepest, k=%d", 
-                            seeder.getName(), intraRoute, candidateCount);
+        return String.format("Local Search Candidate - %s, %s swap, steepest, k=%d%s",
+                            seeder.getName(), intraRoute, candidateCount, useDontLookBits ? ", DLB" : "");
     }
 }
@@ -1,108 +1,182 @@
 package org.politechnika.algorithm.local_search;
 
 import org.politechnika.algorithm.Algorithm;
-import org.politechnika.algorithm.local_search.route_moves.ReplaceNode;
-import org.politechnika.algorithm.local_search.route_moves.RouteMove;
-import org.politechnika.algorithm.local_search.route_moves.SwapEdges;
+import org.politechnika.algorithm.local_search.route_moves.PackedMoves;
 import org.politechnika.model.Instance;
-import org.politechnika.model.Solution;
-import org.politechnika.util.RouteMoveWrapper;
-import org.politechnika.util.Tuple;
+import org.politechnika.model.Tour;
 
-import java.util.*;
+import java.util.Arrays;
 
+/**
+ * Steepest local search (edge swaps + node replacement) with a list of improving moves. After the
+ * first full evaluation only moves around changed nodes are evaluated again; edge swaps are stored
+ * in both reconnections, so moves that become applicable after a reversal are not lost.
+ */
 public class LocalSearchLM extends LocalSearch{
-    private final PriorityQueue<RouteMoveWrapper> queue;
+    private final MoveList moves = new MoveList();
+    private final int[] touched = new int[6];
+    private int[] processed = new int[0];
+    private int[] activeNodes = new int[0];
+    private int[] outsideNodes = new int[0];
+    private int[] outsideIndex = new int[0];
+    private int outsideCount;
+
     public LocalSearchLM(Algorithm seeder) {
         super(seeder, "edge", "steepest");
-        queue = new PriorityQueue<>(Comparator.comparingDouble(RouteMoveWrapper::delta));
     }
 
     @Override
-    protected Solution bestSteepest(Solution solution, Instance instance) {
-        HashMap<Tuple<Integer>, Integer> edges = new HashMap<>();
-        List<Integer> nodes = solution.getNodeIdsReadOnly();
-        int size = nodes.size();
-        for (int i = 0; i < size - 1; i++) {
-            edges.put(new Tuple<>(nodes.get(i), nodes.get(i + 1)), i + 1);
+    public void improve(Tour tour, Instance instance) {
+        int totalNodes = instance.getTotalNodes();
+        moves.reset(totalNodes);
+        initOutsideNodes(tour, totalNodes);
+
+        int size = tour.size();
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 2; j < size; j++) {
+                if (i == 0 && j == size - 1) continue;
+                addEdgePair(instance, tour.getNodeAt(i), tour.nextNode(i), tour.getNodeAt(j), tour.nextNode(j));
+            }
         }
-        
-        // Create a set for fast contains check
-        Set<Integer> nodeSet = new HashSet<>(nodes);
-
-        ArrayList<RouteMoveWrapper> toAdd = new ArrayList<>();
-        while (!queue.isEmpty()) {
-            RouteMoveWrapper wrapper = queue.poll();
-
-            Tuple<Integer> edge1 = wrapper.edges().x();
-            Tuple<Integer> edge2 = wrapper.edges().y();
-
-            boolean has1 = edges.containsKey(edge1);
-            boolean has2 = edges.containsKey(edge2);
-            boolean has1rev = edges.containsKey(edge1.reversed());
-            boolean has2rev = edges.containsKey(edge2.reversed());
-
-            if ((has1 && has2 && edges.get(edge1) < edges.get(edge2)) || (has1rev && has2rev && edges.get(edge1.reversed()) > edges.get(edge2.reversed()))) {
-                if (wrapper.type().equals("edge")) {
-                    SwapEdges move = has1 ? new SwapEdges(edges.get(edge1), edges.get(edge2) - 1) : new SwapEdges(edges.get(edge2.reversed()), edges.get(edge1.reversed()) - 1);
-                    queue.addAll(toAdd);
-                    return move.applyMove(solution, instance);
-                } else if (wrapper.type().equals("node")) {
-                    if (nodeSet.contains(wrapper.externalNode())) continue;
-                    ReplaceNode move = has1 ? new ReplaceNode(edges.get(edge1), wrapper.externalNode()) : new ReplaceNode(edges.get(edge2.reversed()), wrapper.externalNode());
-                    queue.addAll(toAdd);
-                    return move.applyMove(solution, instance);
-                }
+        for (int i = 0; i < size; i++) {
+            addReplaceMoves(tour, instance, i);
+        }
+        search(tour, instance);
+    }
+
+    // fills the list only with moves around the active nodes, e.g. the ones a perturbation changed
+    @Override
+    public void improve(Tour tour, Instance instance, DontLookBits dontLookBits) {
+        int totalNodes = instance.getTotalNodes();
+        moves.reset(totalNodes);
+        initOutsideNodes(tour, totalNodes);
+
+        int count = 0;
+        while (!dontLookBits.isEmpty()) {
+            int nodeId = dontLookBits.poll();
+            moves.markChanged(nodeId);
+            activeNodes[count++] = nodeId;
+        }
+        reevaluate(tour, instance, activeNodes, count);
+        search(tour, instance);
+    }
+
+    private void search(Tour tour, Instance instance) {
+        long move;
+        while ((move = moves.pollApplicable(tour)) != -1) {
+            int count = PackedMoves.touchedNodes(move, tour, touched);
+            if (PackedMoves.type(move) == PackedMoves.REPLACE_NODE) {
+                swapOutside(PackedMoves.second(move), tour.getNodeAt(PackedMoves.first(move)));
+            }
+            PackedMoves.apply(move, tour, instance);
+
+            moves.nextEpoch();
+            for (int k = 0; k < count; k++) {
+                moves.markChanged(touched[k]);
             }
-            if ((has1 && has2rev) || (has1rev && has2)) {
-                toAdd.add(wrapper);
+            reevaluate(tour, instance, touched, count);
+        }
+    }
+
+    private void initOutsideNodes(Tour tour, int totalNodes) {
+        if (outsideIndex.length != totalNodes) {
+            outsideNodes = new int[totalNodes];
+            outsideIndex = new int[totalNodes];
+            processed = new int[totalNodes];
+            activeNodes = new int[totalNodes];
+        }
+        Arrays.fill(processed, -1);
+        outsideCount = 0;
+        for (int node = 0; node < totalNodes; node++) {
+            if (tour.contains(node)) {
+                outsideIndex[node] = -1;
+            } else {
+                outsideIndex[node] = outsideCount;
+                outsideNodes[outsideCount++] = node;
             }
         }
-        queue.addAll(toAdd);
+    }
 
-        Neighborhood nb = new Neighborhood(solution, instance, "edge");
-        double bestDelta = 0;
-        RouteMove bestMove = null;
+    private void swapOutside(int enteringNode, int leavingNode) {
+        int index = outsideIndex[enteringNode];
+        outsideNodes[index] = leavingNode;
+        outsideIndex[leavingNode] = index;
+        outsideIndex[enteringNode] = -1;
+    }
 
-        while (nb.hasNext()) {
-            RouteMove rm = nb.next();
+    // moves with an edge adjacent to the nodes: those edges paired with all edges, replacement of
+    // the tour nodes and insertion of the others
+    private void reevaluate(Tour tour, Instance instance, int[] nodes, int count) {
+        int epoch = moves.getCurrentEpoch();
+        int size = tour.size();
 
-            double delta = rm.delta(solution, instance);
+        for (int t = 0; t < count; t++) {
+            int node = nodes[t];
+            if (processed[node] == epoch) continue;
+            processed[node] = epoch;
 
-            if (delta < bestDelta) {
-                bestDelta = delta;
-                bestMove = rm;
+            int index = tour.positionOf(node);
+            if (index < 0) {
+                for (int i = 0; i < size; i++) {
+                    int tourNode = tour.getNodeAt(i);
+                    if (moves.changedInCurrentEpoch(tourNode)) continue;
+                    int delta = PackedMoves.replaceNodeDelta(i, node, tour, instance);
+                    if (delta < 0) {
+                        moves.add(PackedMoves.REPLACE_NODE, tour.prevNode(i), tourNode, tour.nextNode(i), node, delta);
+                    }
+                }
+                continue;
             }
+
+            addReplaceMoves(tour, instance, index);
+
+            if (processed[tour.prevNode(index)] != epoch) {
+                pairWithAllEdges(tour, instance, tour.prevIndex(index), epoch);
+            }
+            if (processed[tour.nextNode(index)] != epoch) {
+                pairWithAllEdges(tour, instance, index, epoch);
+            }
+        }
+    }
+
+    // pairs whose endpoints were processed in this epoch are already evaluated
+    private void pairWithAllEdges(Tour tour, Instance instance, int edgeIndex, int epoch) {
+        int a = tour.getNodeAt(edgeIndex);
+        int b = tour.nextNode(edgeIndex);
+        int size = tour.size();
+        for (int i = 0; i < size; i++) {
+            int c = tour.getNodeAt(i);
+            int d = tour.nextNode(i);
+            if (c == a || c == b || d == a) continue;
+            if (processed[c] == epoch || processed[d] == epoch) continue;
+            addEdgePair(instance, a, b, c, d);
+        }
+    }
+
+    private void addReplaceMoves(Tour tour, Instance instance, int index) {
+        int prev = tour.prevNode(index);
+        int node = tour.getNodeAt(index);
+        int next = tour.nextNode(index);
+        for (int k = 0; k < outsideCount; k++) {
+            int outsideNode = outsideNodes[k];
+            int delta = PackedMoves.replaceNodeDelta(index, outsideNode, tour, instance);
             if (delta < 0) {
-                if (rm instanceof SwapEdges swapEdges) {
-                    queue.add(new RouteMoveWrapper(new Tuple<>(swapEdges.firstEdge(solution), swapEdges.secondEdge(solution)), delta, "edge", null));
-                } else if (rm instanceof ReplaceNode replaceNode) {
-                    int inNode = replaceNode.getInSolutionNodeIndex();
-                    int prevIdx = inNode == 0 ? size - 1 : inNode - 1;
-                    int nextIdx = inNode == size - 1 ? 0 : inNode + 1;
-                    Tuple<Integer> e1 = new Tuple<>(nodes.get(prevIdx), nodes.get(inNode));
-                    Tuple<Integer> e2 = new Tuple<>(nodes.get(inNode), nodes.get(nextIdx));
-                    queue.add(new RouteMoveWrapper(new Tuple<>(e1, e2), delta, "node", replaceNode.getOutSolutionNode()));
-                }
+                moves.add(PackedMoves.REPLACE_NODE, prev, node, next, outsideNode, delta);
             }
         }
-        return bestMove == null ? solution : bestMove.applyMove(solution, instance);
     }
 
-    @Override
-    public Solution solve(Instance instance, int startNode) {
-        Solution start = this.seeder.solve(instance, startNode);
-        start = new Solution(start.getNodeIds(),start.getObjectiveValue(),this.getName(),start.getStartNode());
-        boolean converged = false;
-        //int steps = 0;
-        while (!converged) {
-            //steps++;
-            double lastScore = start.getObjectiveValue();
-            start = this.bestSteepest(start, instance);
-            converged = lastScore == start.getObjectiveValue();
+    // a-c, b-d applies now, a-d, b-c once the relative orientation of the edges flips
+    private void addEdgePair(Instance instance, int a, int b, int c, int d) {
+        int removed = instance.getDistance(a, b) + instance.getDistance(c, d);
+        int delta = instance.getDistance(a, c) + instance.getDistance(b, d) - removed;
+        if (delta < 0) {
+            moves.add(PackedMoves.SWAP_EDGES, a, b, c, d, delta);
+        }
+        int reversedDelta = instance.getDistance(a, d) + instance.getDistance(b, c) - removed;
+        if (reversedDelta < 0) {
+            moves.add(PackedMoves.SWAP_EDGES, a, b, d, c, reversedDelta);
         }
-        //System.out.printf("Steps: %d %f\n", steps, start.getObjectiveValue());
-        return start;
     }
 
     @Override
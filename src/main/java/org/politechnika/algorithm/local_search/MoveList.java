@@ -0,0 +1,218 @@
+package org.politechnika.algorithm.local_search;
+
+import org.politechnika.algorithm.local_search.route_moves.PackedMoves;
+import org.politechnika.model.TourView;
+
+import java.util.Arrays;
+
+
+/**
+ * List of improving moves ordered by delta, stored in primitive arrays.
+ * Moves are remembered by nodes, not by tour indices, so they survive changes elsewhere
+ * in the tour:
+ * <ul>
+ *     <li>SWAP_EDGES (a, b, c, d): removes edges a-b and c-d, adds a-c and b-d,</li>
+ *     <li>REPLACE_NODE (a, b, c, d): node b between a and c is replaced by outside node d,</li>
+ *     <li>SWAP_NODES (a, b): exchanges the tour positions of nodes a and b.</li>
+ * </ul>
+ * Every entry is stamped with the epoch in which it was evaluated. Whenever the edges of a
+ * node change the node gets the current epoch, and entries involving such a node are dropped
+ * when polled; the owner is expected to re-evaluate the moves around changed nodes.
+ * Edge swaps whose edges exist but with opposite relative orientation are kept for later.
+ */
+class MoveList {
+
+    private int[] type = new int[0];
+    private int[] nodeA = new int[0];
+    private int[] nodeB = new int[0];
+    private int[] nodeC = new int[0];
+    private int[] nodeD = new int[0];
+    private int[] delta = new int[0];
+    private int[] epoch = new int[0];
+
+    private int[] freeEntries = new int[0];
+    private int freeCount;
+    private int allocated;
+
+    private int[] heap = new int[0];
+    private int heapSize;
+
+    private int[] deferred = new int[0];
+
+    private int[] lastChanged = new int[0];
+    private int currentEpoch;
+
+    void reset(int totalNodes) {
+        if (lastChanged.length != totalNodes) {
+            lastChanged = new int[totalNodes];
+        }
+        Arrays.fill(lastChanged, -1);
+        currentEpoch = 0;
+        heapSize = 0;
+        freeCount = 0;
+        allocated = 0;
+    }
+
+    int size() {
+        return heapSize;
+    }
+
+    int getCurrentEpoch() {
+        return currentEpoch;
+    }
+
+    // call after every applied move and before marking changed nodes
+    void nextEpoch() {
+        currentEpoch++;
+    }
+
+    void markChanged(int node) {
+        lastChanged[node] = currentEpoch;
+    }
+
+    boolean changedInCurrentEpoch(int node) {
+        return lastChanged[node] == currentEpoch;
+    }
+
+    void add(int moveType, int a, int b, int c, int d, int moveDelta) {
+        int entry = allocate();
+        type[entry] = moveType;
+        nodeA[entry] = a;
+        nodeB[entry] = b;
+        nodeC[entry] = c;
+        nodeD[entry] = d;
+        delta[entry] = moveDelta;
+        epoch[entry] = currentEpoch;
+        push(entry);
+    }
+
+    // best move applicable to the tour as a packed move, or -1
+    long pollApplicable(TourView tour) {
+        int deferredCount = 0;
+        long result = -1;
+
+        while (heapSize > 0) {
+            int entry = pop();
+
+            if (isStale(entry)) {
+                release(entry);
+                continue;
+            }
+
+            int a = nodeA[entry];
+            int b = nodeB[entry];
+            int c = nodeC[entry];
+            int d = nodeD[entry];
+
+            if (type[entry] == PackedMoves.SWAP_EDGES) {
+                boolean forward1 = isSuccessor(tour, a, b);
+                boolean forward2 = isSuccessor(tour, c, d);
+                boolean backward1 = isSuccessor(tour, b, a);
+                boolean backward2 = isSuccessor(tour, d, c);
+
+                if ((forward1 && forward2) || (backward1 && backward2)) {
+                    result = forward1 ? PackedMoves.swapEdgesAfter(tour, a, c) : PackedMoves.swapEdgesAfter(tour, b, d);
+                    release(entry);
+                    break;
+                }
+                if ((forward1 && backward2) || (backward1 && forward2)) {
+                    deferred = ensureLength(deferred, deferredCount + 1);
+                    deferred[deferredCount++] = entry;
+                } else {
+                    release(entry);
+                }
+            } else if (type[entry] == PackedMoves.REPLACE_NODE) {
+                result = PackedMoves.replaceNode(tour.positionOf(b), d);
+                release(entry);
+                break;
+            } else {
+                result = PackedMoves.swapNodes(tour.positionOf(a), tour.positionOf(b));
+                release(entry);
+                break;
+            }
+        }
+
+        for (int k = 0; k < deferredCount; k++) {
+            push(deferred[k]);
+        }
+        return result;
+    }
+
+    // the neighbors of a replaced node are fixed as long as it is unchanged
+    private boolean isStale(int entry) {
+        int entryEpoch = epoch[entry];
+        return switch (type[entry]) {
+            case PackedMoves.REPLACE_NODE -> lastChanged[nodeB[entry]] > entryEpoch
+                    || lastChanged[nodeD[entry]] > entryEpoch;
+            case PackedMoves.SWAP_NODES -> lastChanged[nodeA[entry]] > entryEpoch
+                    || lastChanged[nodeB[entry]] > entryEpoch;
+            default -> lastChanged[nodeA[entry]] > entryEpoch || lastChanged[nodeB[entry]] > entryEpoch
+                    || lastChanged[nodeC[entry]] > entryEpoch || lastChanged[nodeD[entry]] > entryEpoch;
+        };
+    }
+
+    private static boolean isSuccessor(TourView tour, int from, int to) {
+        int index = tour.positionOf(from);
+        return index >= 0 && tour.nextNode(index) == to;
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeEntries[--freeCount];
+        }
+        if (allocated == type.length) {
+            int capacity = Math.max(64, type.length * 2);
+            type = Arrays.copyOf(type, capacity);
+            nodeA = Arrays.copyOf(nodeA, capacity);
+            nodeB = Arrays.copyOf(nodeB, capacity);
+            nodeC = Arrays.copyOf(nodeC, capacity);
+            nodeD = Arrays.copyOf(nodeD, capacity);
+            delta = Arrays.copyOf(delta, capacity);
+            epoch = Arrays.copyOf(epoch, capacity);
+        }
+        return allocated++;
+    }
+
+    private void release(int entry) {
+        freeEntries = ensureLength(freeEntries, freeCount + 1);
+        freeEntries[freeCount++] = entry;
+    }
+
+    private static int[] ensureLength(int[] array, int length) {
+        return length <= array.length ? array : Arrays.copyOf(array, Math.max(64, array.length * 2));
+    }
+
+    private boolean less(int entry1, int entry2) {
+        return delta[entry1] < delta[entry2] || (delta[entry1] == delta[entry2] && entry1 < entry2);
+    }
+
+    private void push(int entry) {
+        heap = ensureLength(heap, heapSize + 1);
+        int index = heapSize++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!less(entry, heap[parent])) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = entry;
+    }
+
+    private int pop() {
+        int top = heap[0];
+        int last = heap[--heapSize];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && less(heap[child + 1], heap[child])) child++;
+            if (!less(heap[child], last)) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        if (heapSize > 0) {
+            heap[index] = last;
+        }
+        return top;
+    }
+}
@@ -1,63 +1,177 @@
 package org.politechnika.algorithm.local_search;
 
-import org.politechnika.algorithm.local_search.route_moves.ReplaceNode;
+import org.politechnika.algorithm.local_search.route_moves.PackedMoves;
 import org.politechnika.algorithm.local_search.route_moves.RouteMove;
-import org.politechnika.algorithm.local_search.route_moves.SwapEdges;
-import org.politechnika.algorithm.local_search.route_moves.SwapNodes;
 import org.politechnika.model.Instance;
-import org.politechnika.model.Node;
-import org.politechnika.model.Solution;
+import org.politechnika.model.TourView;
 
 import java.util.*;
 
+/**
+ * Lazily generated neighborhood: all ReplaceNode moves (tour position x outside node), then all
+ * intra-route pairs (i, j) with i < j < size - 1, decoded from their index on request. With a
+ * Random the indices are visited in the order k -> (offset + k * stride) mod count with stride
+ * coprime to count.
+ */
 public class Neighborhood implements Iterator<RouteMove> {
 
-    private int generatedMemberCount;
-    private final ArrayList<RouteMove> routeMoves;
-
-    public Neighborhood(Solution solution, Instance instance, String intraRoute) {
-        this.routeMoves = new ArrayList<>();
-        List<Integer> nodes = solution.getNodeIdsReadOnly();
-        int size = nodes.size();
-        HashSet<Integer> usedNodes = new HashSet<>(nodes);
-        
-        // ReplaceNode moves
-        for (int i = 0; i < size; i++) {
-            for (Node node2 : instance.getNodes()) {
-                if (!usedNodes.contains(node2.getId())) {
-                    routeMoves.add(new ReplaceNode(i, node2.getId()));
-                }
-            }
+    private final boolean edgeSwaps;
+    private final int size;
+    private final int[] outsideNodes;
+    private final int outsideCount;
+    private final long replaceMoveCount;
+    private final long moveCount;
+    private final long stride;
+    private long cursor;
+    private long generatedMemberCount;
+
+    public Neighborhood(TourView tour, Instance instance, String intraRoute) {
+        this(tour, instance, intraRoute, null);
+    }
+
+    public Neighborhood(TourView tour, Instance instance, String intraRoute, Random random) {
+        if (!Objects.equals(intraRoute, "edge") && !Objects.equals(intraRoute, "node")) {
+            throw new RuntimeException("Unknown intraRoute: " + intraRoute);
         }
-        
-        // Intra-route moves
-        if (Objects.equals(intraRoute, "edge")) {
-            for (int i = 0; i < size; i++) {
-                for (int j = i + 1; j < size - 1; j++) {
-                    routeMoves.add(new SwapEdges(i, j));
-                }
-            }
-        } else if (Objects.equals(intraRoute, "node")) {
-            for (int i = 0; i < size; i++) {
-                for (int j = i + 1; j < size - 1; j++) {
-                    routeMoves.add(new SwapNodes(i, j));
-                }
+        this.edgeSwaps = Objects.equals(intraRoute, "edge");
+        this.size = tour.size();
+
+        this.outsideNodes = new int[instance.getTotalNodes() - size];
+        int count = 0;
+        for (int nodeId = 0; nodeId < instance.getTotalNodes(); nodeId++) {
+            if (!tour.contains(nodeId)) {
+                outsideNodes[count++] = nodeId;
             }
+        }
+        this.outsideCount = count;
+
+        this.replaceMoveCount = (long) size * outsideCount;
+        long intraMoveCount = size < 3 ? 0 : (long) (size - 1) * (size - 2) / 2;
+        this.moveCount = replaceMoveCount + intraMoveCount;
+
+        if (random == null || moveCount < 2) {
+            this.cursor = 0;
+            this.stride = 1;
         } else {
-            throw new RuntimeException("Unknown intraRoute: " + intraRoute);
+            this.cursor = Math.floorMod(random.nextLong(), moveCount);
+            long candidate = 1 + Math.floorMod(random.nextLong(), moveCount - 1);
+            while (gcd(candidate, moveCount) != 1) {
+                candidate = candidate == moveCount - 1 ? 1 : candidate + 1;
+            }
+            this.stride = candidate;
         }
+    }
 
-        Random rnd = new Random(42);
-        Collections.shuffle(routeMoves, rnd);
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private long decode(long index) {
+        if (index < replaceMoveCount) {
+            int position = (int) (index / outsideCount);
+            return PackedMoves.replaceNode(position, outsideNodes[(int) (index % outsideCount)]);
+        }
+
+        // Row i holds the pairs (i, i + 1) .. (i, m - 1), with m = size - 1 candidate indices
+        long pair = index - replaceMoveCount;
+        long m = size - 1;
+        long twoM = 2 * m - 1;
+        int i = (int) ((twoM - Math.sqrt((double) twoM * twoM - 8.0 * pair)) / 2);
+        while (i > 0 && rowStart(i, m) > pair) i--;
+        while (rowStart(i + 1, m) <= pair) i++;
+        int j = (int) (pair - rowStart(i, m)) + i + 1;
+
+        return edgeSwaps ? PackedMoves.swapEdges(i, j) : PackedMoves.swapNodes(i, j);
+    }
+
+    private static long rowStart(long row, long m) {
+        return row * (m - 1) - row * (row - 1) / 2;
     }
 
     @Override
     public boolean hasNext() {
-        return generatedMemberCount < routeMoves.size();
+        return generatedMemberCount < moveCount;
     }
 
     @Override
     public RouteMove next() {
-        return  routeMoves.get(generatedMemberCount++);
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return PackedMoves.toRouteMove(nextPacked());
+    }
+
+    private long nextPacked() {
+        long index = cursor;
+        cursor += stride;
+        if (cursor >= moveCount) {
+            cursor -= moveCount;
+        }
+        generatedMemberCount++;
+        return decode(index);
+    }
+
+    // 0 once the neighborhood is exhausted
+    public int nextBatch(long[] moves) {
+        int count = 0;
+        while (count < moves.length && hasNext()) {
+            moves[count++] = nextPacked();
+        }
+        return count;
+    }
+
+    public long size() {
+        return moveCount;
+    }
+
+    // moves changing an edge adjacent to the node, for don't-look bits; the buffer needs 2 *
+    // totalNodes slots
+    public static int movesAround(TourView tour, Instance instance, String intraRoute, int nodeId, long[] moves) {
+        int size = tour.size();
+        int index = tour.positionOf(nodeId);
+        int count = 0;
+
+        if (index < 0) {
+            for (int i = 0; i < size; i++) {
+                moves[count++] = PackedMoves.replaceNode(i, nodeId);
+            }
+            return count;
+        }
+
+        for (int outsideNode = 0; outsideNode < instance.getTotalNodes(); outsideNode++) {
+            if (!tour.contains(outsideNode)) {
+                moves[count++] = PackedMoves.replaceNode(index, outsideNode);
+            }
+        }
+
+        if (Objects.equals(intraRoute, "edge")) {
+            int prev = tour.prevNode(index);
+            int next = tour.nextNode(index);
+            for (int i = 0; i < size; i++) {
+                int from = tour.getNodeAt(i);
+                int to = tour.nextNode(i);
+                // edges prev -> node and node -> next against every edge that shares no node with them
+                if (from != prev && from != nodeId && to != prev) {
+                    moves[count++] = PackedMoves.swapEdgesAfter(tour, prev, from);
+                }
+                if (from != nodeId && from != next && to != nodeId) {
+                    moves[count++] = PackedMoves.swapEdgesAfter(tour, nodeId, from);
+                }
+            }
+        } else if (Objects.equals(intraRoute, "node")) {
+            for (int i = 0; i < size; i++) {
+                if (i != index) {
+                    moves[count++] = PackedMoves.swapNodes(index, i);
+                }
+            }
+        } else {
+            throw new RuntimeException("Unknown intraRoute: " + intraRoute);
+        }
+        return count;
     }
 }
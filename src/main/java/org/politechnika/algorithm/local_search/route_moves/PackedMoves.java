@@ -0,0 +1,187 @@
+package org.politechnika.algorithm.local_search.route_moves;
+
+import org.politechnika.model.Instance;
+import org.politechnika.model.Tour;
+import org.politechnika.model.TourView;
+
+
+/**
+ * Route moves packed into a long: the type in the two highest bits and two 31-bit operands, the
+ * tour index and outside node for ReplaceNode, two tour indices (first < second) otherwise. The
+ * delta kernels switch on the type, so evaluating an array of moves needs no dispatch or
+ * allocation.
+ */
+public final class PackedMoves {
+
+    public static final int REPLACE_NODE = 0;
+    public static final int SWAP_EDGES = 1;
+    public static final int SWAP_NODES = 2;
+
+    private static final int OPERAND_BITS = 31;
+    private static final long OPERAND_MASK = (1L << OPERAND_BITS) - 1;
+
+    private PackedMoves() {
+    }
+
+    public static long encode(int type, int first, int second) {
+        return ((long) type << (2 * OPERAND_BITS)) | ((long) first << OPERAND_BITS) | second;
+    }
+
+    public static long replaceNode(int inSolutionNodeIndex, int outSolutionNode) {
+        return encode(REPLACE_NODE, inSolutionNodeIndex, outSolutionNode);
+    }
+
+    public static long swapEdges(int nodeIndex1, int nodeIndex2) {
+        return encode(SWAP_EDGES, Math.min(nodeIndex1, nodeIndex2), Math.max(nodeIndex1, nodeIndex2));
+    }
+
+    // removes the edges leaving p and r in tour direction, adds p-r and the edge between their
+    // successors
+    public static long swapEdgesAfter(TourView tour, int p, int r) {
+        int pIndex = tour.positionOf(p);
+        int rIndex = tour.positionOf(r);
+        int qIndex = tour.nextIndex(pIndex);
+        return qIndex <= rIndex ? swapEdges(qIndex, rIndex) : swapEdges(tour.nextIndex(rIndex), pIndex);
+    }
+
+    public static long swapNodes(int nodeIndex1, int nodeIndex2) {
+        return encode(SWAP_NODES, Math.min(nodeIndex1, nodeIndex2), Math.max(nodeIndex1, nodeIndex2));
+    }
+
+    public static int type(long move) {
+        return (int) (move >>> (2 * OPERAND_BITS));
+    }
+
+    public static int first(long move) {
+        return (int) ((move >>> OPERAND_BITS) & OPERAND_MASK);
+    }
+
+    public static int second(long move) {
+        return (int) (move & OPERAND_MASK);
+    }
+
+    public static int delta(long move, TourView tour, Instance instance) {
+        return switch (type(move)) {
+            case REPLACE_NODE -> replaceNodeDelta(first(move), second(move), tour, instance);
+            case SWAP_EDGES -> swapEdgesDelta(first(move), second(move), tour, instance);
+            case SWAP_NODES -> swapNodesDelta(first(move), second(move), tour, instance);
+            default -> throw new IllegalArgumentException("Unknown move type: " + type(move));
+        };
+    }
+
+    public static void evaluate(long[] moves, int count, TourView tour, Instance instance, int[] deltas) {
+        for (int k = 0; k < count; k++) {
+            deltas[k] = delta(moves[k], tour, instance);
+        }
+    }
+
+    public static void apply(long move, Tour tour, Instance instance) {
+        int first = first(move);
+        int second = second(move);
+        switch (type(move)) {
+            case REPLACE_NODE -> {
+                tour.addToObjectiveValue(replaceNodeDelta(first, second, tour, instance));
+                tour.replace(first, second);
+            }
+            case SWAP_EDGES -> {
+                tour.addToObjectiveValue(swapEdgesDelta(first, second, tour, instance));
+                tour.reverse(first, second);
+            }
+            case SWAP_NODES -> {
+                tour.addToObjectiveValue(swapNodesDelta(first, second, tour, instance));
+                tour.swap(first, second);
+            }
+            default -> throw new IllegalArgumentException("Unknown move type: " + type(move));
+        }
+    }
+
+    // nodes needs at least six slots, duplicates possible; call before applying the move
+    public static int touchedNodes(long move, TourView tour, int[] nodes) {
+        int first = first(move);
+        int second = second(move);
+        switch (type(move)) {
+            case REPLACE_NODE -> {
+                nodes[0] = tour.prevNode(first);
+                nodes[1] = tour.getNodeAt(first);
+                nodes[2] = tour.nextNode(first);
+                nodes[3] = second;
+                return 4;
+            }
+            case SWAP_EDGES -> {
+                nodes[0] = tour.prevNode(first);
+                nodes[1] = tour.getNodeAt(first);
+                nodes[2] = tour.getNodeAt(second);
+                nodes[3] = tour.nextNode(second);
+                return 4;
+            }
+            case SWAP_NODES -> {
+                nodes[0] = tour.prevNode(first);
+                nodes[1] = tour.getNodeAt(first);
+                nodes[2] = tour.nextNode(first);
+                nodes[3] = tour.prevNode(second);
+                nodes[4] = tour.getNodeAt(second);
+                nodes[5] = tour.nextNode(second);
+                return 6;
+            }
+            default -> throw new IllegalArgumentException("Unknown move type: " + type(move));
+        }
+    }
+
+    public static RouteMove toRouteMove(long move) {
+        return switch (type(move)) {
+            case REPLACE_NODE -> new ReplaceNode(first(move), second(move));
+            case SWAP_EDGES -> new SwapEdges(first(move), second(move));
+            case SWAP_NODES -> new SwapNodes(first(move), second(move));
+            default -> throw new IllegalArgumentException("Unknown move type: " + type(move));
+        };
+    }
+
+    public static int replaceNodeDelta(int index, int outNode, TourView tour, Instance instance) {
+        int inNode = tour.getNodeAt(index);
+        int prev = tour.prevNode(index);
+        int next = tour.nextNode(index);
+
+        return instance.getDistance(prev, outNode) + instance.getDistance(outNode, next)
+                - instance.getDistance(prev, inNode) - instance.getDistance(inNode, next)
+                + instance.getCost(outNode) - instance.getCost(inNode);
+    }
+
+    static int swapEdgesDelta(int index1, int index2, TourView tour, Instance instance) {
+        int prevNode = tour.prevNode(index1);
+        int nextNode = tour.nextNode(index2);
+        int node1 = tour.getNodeAt(index1);
+        int node2 = tour.getNodeAt(index2);
+
+        return instance.getDistance(prevNode, node2) + instance.getDistance(nextNode, node1)
+                - instance.getDistance(prevNode, node1) - instance.getDistance(nextNode, node2);
+    }
+
+    static int swapNodesDelta(int index1, int index2, TourView tour, Instance instance) {
+        if (index1 == index2) return 0;
+        if (tour.nextIndex(index2) == index1 && tour.nextIndex(index1) != index2) {
+            // adjacent across the end of the array, index2 comes right before index1
+            int swapped = index1;
+            index1 = index2;
+            index2 = swapped;
+        }
+
+        int ni = tour.getNodeAt(index1);
+        int nj = tour.getNodeAt(index2);
+        int prevNodeI = tour.prevNode(index1);
+        int nextNodeJ = tour.nextNode(index2);
+
+        // adjacent case
+        if (tour.nextIndex(index1) == index2) {
+            return instance.getDistance(prevNodeI, nj) + instance.getDistance(ni, nextNodeJ)
+                    - instance.getDistance(prevNodeI, ni) - instance.getDistance(nj, nextNodeJ);
+        }
+
+        int nextNodeI = tour.nextNode(index1);
+        int prevNodeJ = tour.prevNode(index2);
+
+        return instance.getDistance(prevNodeI, nj) + instance.getDistance(nj, nextNodeI)
+                + instance.getDistance(prevNodeJ, ni) + instance.getDistance(ni, nextNodeJ)
+                - instance.getDistance(prevNodeI, ni) - instance.getDistance(ni, nextNodeI)
+                - instance.getDistance(prevNodeJ, nj) - instance.getDistance(nj, nextNodeJ);
+    }
+}
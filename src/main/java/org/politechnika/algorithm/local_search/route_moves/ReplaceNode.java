@@ -1,58 +1,38 @@
 package org.politechnika.algorithm.local_search.route_moves;
 
 import org.politechnika.model.Instance;
-import org.politechnika.model.Solution;
-import org.politechnika.util.ObjectiveFunction;
-import org.politechnika.util.Tuple;
-
-import java.util.ArrayList;
-import java.util.List;
+import org.politechnika.model.Tour;
+import org.politechnika.model.TourView;
 
 public class ReplaceNode implements RouteMove {
-    private final Integer inSolutionNodeIndex;
-    private final Integer outSolutionNode;
-    public ReplaceNode(Integer inSolutionNodeIndex, Integer outSolutionNode) {
+    private final int inSolutionNodeIndex;
+    private final int outSolutionNode;
+    public ReplaceNode(int inSolutionNodeIndex, int outSolutionNode) {
         this.inSolutionNodeIndex = inSolutionNodeIndex;
         this.outSolutionNode = outSolutionNode;
     }
 
-    public Integer getInSolutionNodeIndex() {
+    public int getInSolutionNodeIndex() {
         return inSolutionNodeIndex;
     }
 
-    public Integer getOutSolutionNode() {
+    public int getOutSolutionNode() {
         return outSolutionNode;
     }
 
-    public Tuple<Integer> getReplacedNode(Solution solution){
-        return new Tuple<>(solution.getNodeIds().get(inSolutionNodeIndex), outSolutionNode);
+    public int getReplacedNode(TourView tour){
+        return tour.getNodeAt(inSolutionNodeIndex);
     }
 
     @Override
-    public double delta(Solution solution, Instance instance) {
-        int size = solution.size();
-        int inNode = solution.getNodeAt(inSolutionNodeIndex);
-        int prev = (inSolutionNodeIndex == 0) ? solution.getNodeAt(size - 1)
-                : solution.getNodeAt(inSolutionNodeIndex - 1);
-        int next = (inSolutionNodeIndex == size - 1) ? solution.getNodeAt(0)
-                : solution.getNodeAt(inSolutionNodeIndex + 1);
-
-        return -instance.getDistance(prev, inNode) -
-                instance.getDistance(inNode, next) -
-                instance.getNode(inNode).getCost() +
-                instance.getNode(outSolutionNode).getCost() +
-                instance.getDistance(prev, outSolutionNode) +
-                instance.getDistance(outSolutionNode, next);
+    public double delta(TourView tour, Instance instance) {
+        return PackedMoves.replaceNodeDelta(inSolutionNodeIndex, outSolutionNode, tour, instance);
     }
 
     @Override
-    public Solution applyMove(Solution solution, Instance instance) {
-        // Use getNodeIds() since we need to modify the list
-        List<Integer> newIds = solution.getNodeIds();
-        newIds.set(inSolutionNodeIndex, outSolutionNode);
-
-        double newObjective = solution.getObjectiveValue() + delta(solution, instance);
-        return new Solution(newIds, newObjective, solution.getAlgorithmName(), newIds.getFirst());
+    public void applyMove(Tour tour, Instance instance) {
+        tour.addToObjectiveValue(delta(tour, instance));
+        tour.replace(inSolutionNodeIndex, outSolutionNode);
     }
 
 }
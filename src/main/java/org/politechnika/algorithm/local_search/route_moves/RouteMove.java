@@ -1,9 +1,12 @@
 package org.politechnika.algorithm.local_search.route_moves;
 
 import org.politechnika.model.Instance;
-import org.politechnika.model.Solution;
+import org.politechnika.model.Tour;
+import org.politechnika.model.TourView;
 
 public interface RouteMove {
-    double delta(Solution solution, Instance instance);
-    Solution applyMove(Solution solution, Instance instance);
+    // must not allocate
+    double delta(TourView tour, Instance instance);
+
+    void applyMove(Tour tour, Instance instance);
 }
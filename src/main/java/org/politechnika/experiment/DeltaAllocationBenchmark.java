@@ -0,0 +1,139 @@
+package org.politechnika.experiment;
+
+import org.politechnika.algorithm.RandomSolution;
+import org.politechnika.algorithm.local_search.Neighborhood;
+import org.politechnika.algorithm.local_search.route_moves.PackedMoves;
+import org.politechnika.algorithm.local_search.route_moves.ReplaceNode;
+import org.politechnika.algorithm.local_search.route_moves.RouteMove;
+import org.politechnika.algorithm.local_search.route_moves.SwapEdges;
+import org.politechnika.algorithm.local_search.route_moves.SwapNodes;
+import org.politechnika.io.InstanceReader;
+import org.politechnika.model.Instance;
+import org.politechnika.model.Tour;
+import org.politechnika.model.TourView;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Bytes allocated by the delta evaluation of every route move type, 0 after warm-up. The last row
+ * runs the packed batch kernel over the edge neighborhood.
+ */
+public class DeltaAllocationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    public static void main(String[] args) throws Exception {
+        String fileName = args.length > 0 ? args[0] : "TSPA.csv";
+        Instance instance = InstanceReader.readInstance(fileName);
+        Tour tour = Tour.of(instance, new RandomSolution(42).solve(instance, 0));
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            System.err.println("Thread allocation counters are not supported by this JVM");
+            return;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        System.out.println("Instance: " + instance.getName());
+        report("ReplaceNode", replaceMoves(instance, tour), tour, instance, threadBean);
+        report("SwapEdges", swapEdgesMoves(tour), tour, instance, threadBean);
+        report("SwapNodes", swapNodesMoves(tour), tour, instance, threadBean);
+        reportPacked(packedMoves(tour, instance), tour, instance, threadBean);
+    }
+
+    private static void reportPacked(long[] moves, TourView tour, Instance instance,
+                                     com.sun.management.ThreadMXBean threadBean) {
+        int[] deltas = new int[moves.length];
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            PackedMoves.evaluate(moves, moves.length, tour, instance, deltas);
+        }
+
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            PackedMoves.evaluate(moves, moves.length, tour, instance, deltas);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        long evaluations = (long) moves.length * MEASURED_ROUNDS;
+        System.out.printf("%-12s evaluations=%d, allocated=%d B (%.4f B/eval), %.2f ns/eval%n",
+                "Packed batch", evaluations, allocated, (double) allocated / evaluations,
+                (double) elapsed / evaluations);
+    }
+
+    private static long[] packedMoves(Tour tour, Instance instance) {
+        Neighborhood neighborhood = new Neighborhood(tour, instance, "edge");
+        long[] moves = new long[(int) neighborhood.size()];
+        neighborhood.nextBatch(moves);
+        return moves;
+    }
+
+    private static void report(String label, RouteMove[] moves, TourView tour, Instance instance,
+                               com.sun.management.ThreadMXBean threadBean) {
+        double sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            sink += evaluate(moves, tour, instance);
+        }
+
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            sink += evaluate(moves, tour, instance);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        long evaluations = (long) moves.length * MEASURED_ROUNDS;
+        System.out.printf("%-12s evaluations=%d, allocated=%d B (%.4f B/eval), %.2f ns/eval (checksum %.0f)%n",
+                label, evaluations, allocated, (double) allocated / evaluations,
+                (double) elapsed / evaluations, sink);
+    }
+
+    private static double evaluate(RouteMove[] moves, TourView tour, Instance instance) {
+        double sum = 0;
+        for (RouteMove move : moves) {
+            sum += move.delta(tour, instance);
+        }
+        return sum;
+    }
+
+    private static RouteMove[] replaceMoves(Instance instance, Tour tour) {
+        List<RouteMove> moves = new ArrayList<>();
+        for (int i = 0; i < tour.size(); i++) {
+            for (int nodeId = 0; nodeId < instance.getTotalNodes(); nodeId++) {
+                if (!tour.contains(nodeId)) {
+                    moves.add(new ReplaceNode(i, nodeId));
+                }
+            }
+        }
+        return moves.toArray(new RouteMove[0]);
+    }
+
+    private static RouteMove[] swapEdgesMoves(Tour tour) {
+        List<RouteMove> moves = new ArrayList<>();
+        for (int i = 0; i < tour.size(); i++) {
+            for (int j = i + 1; j < tour.size() - 1; j++) {
+                moves.add(new SwapEdges(i, j));
+            }
+        }
+        return moves.toArray(new RouteMove[0]);
+    }
+
+    private static RouteMove[] swapNodesMoves(Tour tour) {
+        List<RouteMove> moves = new ArrayList<>();
+        for (int i = 0; i < tour.size(); i++) {
+            for (int j = i + 1; j < tour.size() - 1; j++) {
+                moves.add(new SwapNodes(i, j));
+            }
+        }
+        return moves.toArray(new RouteMove[0]);
+    }
+}
@@ -128,6 +128,27 @@ public class ExperimentRunner {
         );
         results.put("HybridEvo_withLS", hybridSolutions);
 
+        System.out.println("\n=== Running Hybrid Evolutionary (partition crossover, with LS) ===");
+        List<Solution> gpxSolutions = runAlgorithm(instance, runs,
+                i -> HybridEvolutionary.withPartitionCrossover(averageTimeMsls, i, populationSize, true)
+        );
+        results.put("HybridEvo_gpx_withLS", gpxSolutions);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (threads > 1) {
+            System.out.println("\n=== Running Hybrid Evolutionary (islands, with LS) ===");
+            List<Solution> islandSolutions = runAlgorithm(instance, runs,
+                    i -> new HybridEvolutionary(averageTimeMsls, i, populationSize, true, threads)
+            );
+            results.put("HybridEvo_islands_withLS", islandSolutions);
+
+            System.out.println("\n=== Running Hybrid Evolutionary (concurrent workers, with LS) ===");
+            List<Solution> concurrentSolutions = runAlgorithm(instance, runs,
+                    i -> HybridEvolutionary.concurrent(averageTimeMsls, i, populationSize, true, threads)
+            );
+            results.put("HybridEvo_concurrent_withLS", concurrentSolutions);
+        }
+
         System.out.println("\n=== Running Dual Annealing (with LS) ===");
         List<Solution> dualAnnealingSolutions = runAlgorithm(instance, runs,
                 i -> new DualAnnealing(averageTimeMsls, i, true)
@@ -160,13 +181,7 @@ public class ExperimentRunner {
             long endTime = System.nanoTime();
             long executionTimeMs = (endTime - startTime) / 1_000_000;
 
-            Solution timedSolution = new Solution(
-                    solution.getNodeIds(),
-                    solution.getObjectiveValue(),
-                    solution.getAlgorithmName(),
-                    solution.getStartNode(),
-                    executionTimeMs
-            );
+            Solution timedSolution = solution.withExecutionTime(executionTimeMs);
             solutions.add(timedSolution);
 
             System.out.printf("  Run %d/%d: Objective = %.2f, Time = %d ms%n",
@@ -176,27 +191,17 @@ public class ExperimentRunner {
     }
 
     private static List<Solution> runAlgorithm(Instance instance, Algorithm algorithm) {
-        System.out.printf("Running %s %d times.%n", algorithm.getName(), SOLUTIONS_PER_ALGORITHM);
-        List<Solution> solutions = new ArrayList<>();
+        String mode = algorithm.solvesAllInParallel()
+                ? "in parallel, time per run = batch wall time / runs"
+                : "sequentially, each run timed on its own";
+        System.out.printf("Running %s %d times %s.%n", algorithm.getName(), SOLUTIONS_PER_ALGORITHM, mode);
         int totalNodes = instance.getTotalNodes();
 
+        int[] startNodes = new int[SOLUTIONS_PER_ALGORITHM];
         for (int i = 0; i < SOLUTIONS_PER_ALGORITHM; i++) {
-            int startNode = i % totalNodes;
-            long startTime = System.nanoTime();
-            Solution solution = algorithm.solve(instance, startNode);
-            long endTime = System.nanoTime();
-            long executionTimeMs = (endTime - startTime) / 1_000_000;
-
-            Solution timedSolution = new Solution(
-                    solution.getNodeIds(),
-                    solution.getObjectiveValue(),
-                    solution.getAlgorithmName(),
-                    solution.getStartNode(),
-                    executionTimeMs
-            );
-            solutions.add(timedSolution);
+            startNodes[i] = i % totalNodes;
         }
-        return solutions;
+        return new ArrayList<>(algorithm.solveAll(instance, startNodes));
     }
 
 
@@ -0,0 +1,192 @@
+package org.politechnika.io;
+
+import org.politechnika.model.Instance;
+import org.politechnika.model.distance.DistanceMatrices;
+import org.politechnika.model.distance.DistanceMatrix;
+import org.politechnika.model.distance.DistanceStorage;
+import org.politechnika.model.distance.MappedDistanceMatrix;
+import org.politechnika.util.CandidateEdges;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Preprocessing results kept across solve calls and runs: candidate tables per k and large
+ * triangular matrices, in a directory named after the instance fingerprint. Set with
+ * {@code -Dtsp.cache.dir} (default {@code cache}) and switched off with {@code -Dtsp.cache=false};
+ * files are moved into place once written, so concurrent runs never see partial files.
+ * <p>
+ * Every file header carries {@link #VERSION}, which is also part of the path. Increase it whenever
+ * the layout or the way an artifact is computed changes (e.g. candidate tie-breaking), files of
+ * another version are rejected and rebuilt.
+ */
+public final class ArtifactCache {
+
+    private static final int MAGIC = 0x43505354;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private ArtifactCache() {
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty("tsp.cache", "true"));
+    }
+
+    public static Path directory() {
+        return Path.of(System.getProperty("tsp.cache.dir", "cache"));
+    }
+
+    private static Path instanceDirectory(long fingerprint) {
+        return directory().resolve("v" + VERSION).resolve(String.format("%016x", fingerprint));
+    }
+
+    public static CandidateEdges candidateEdges(Instance instance, int candidateCount) {
+        return instance.getArtifact("candidates-" + candidateCount,
+                i -> loadOrBuildCandidates(i, candidateCount));
+    }
+
+    private static CandidateEdges loadOrBuildCandidates(Instance instance, int candidateCount) {
+        if (!isEnabled()) {
+            return new CandidateEdges(instance, candidateCount);
+        }
+        Path file = instanceDirectory(instance.getFingerprint()).resolve("candidates-" + candidateCount + ".bin");
+        try {
+            int[][] rows = readCandidates(file, instance.getTotalNodes());
+            if (rows != null) {
+                return new CandidateEdges(rows);
+            }
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable cache file " + file + ": " + e.getMessage());
+        }
+
+        CandidateEdges candidateEdges = new CandidateEdges(instance, candidateCount);
+        try {
+            writeCandidates(file, candidateEdges, instance.getTotalNodes());
+        } catch (IOException e) {
+            System.err.println("Could not write cache file " + file + ": " + e.getMessage());
+        }
+        return candidateEdges;
+    }
+
+    private static int[][] readCandidates(Path file, int totalNodes) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != totalNodes) {
+                throw new IOException("header mismatch");
+            }
+            if (buffer.getInt(12) != VERSION) {
+                throw new IOException("version " + buffer.getInt(12) + " instead of " + VERSION);
+            }
+            int k = buffer.getInt(8);
+            if (buffer.limit() != HEADER_BYTES + 4L * totalNodes * k) {
+                throw new IOException("size mismatch");
+            }
+            int[][] rows = new int[totalNodes][k];
+            IntBuffer ints = buffer.position(HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            for (int[] row : rows) {
+                ints.get(row);
+            }
+            return rows;
+        }
+    }
+
+    private static void writeCandidates(Path file, CandidateEdges candidateEdges, int totalNodes) throws IOException {
+        writeAtomically(file, out -> {
+            out.putInt(MAGIC);
+            out.putInt(totalNodes);
+            out.putInt(candidateEdges.getCandidateCount());
+            out.putInt(VERSION);
+            for (int nodeId = 0; nodeId < totalNodes; nodeId++) {
+                for (int candidate : candidateEdges.getCandidateNeighbors(nodeId)) {
+                    out.putInt(candidate);
+                }
+            }
+        });
+    }
+
+    // only triangles resolved from AUTO are cached, smaller matrices are cheaper to compute than to
+    // read
+    public static DistanceMatrix distanceMatrix(double[] xs, double[] ys, int[] costs, DistanceStorage storage) {
+        DistanceStorage chosen = storage == DistanceStorage.AUTO ? DistanceMatrices.chooseStorage(xs, ys) : storage;
+        boolean cacheable = storage == DistanceStorage.AUTO
+                && (chosen == DistanceStorage.TRIANGULAR_CHAR || chosen == DistanceStorage.TRIANGULAR_INT);
+        if (!cacheable || !isEnabled()) {
+            return DistanceMatrices.build(xs, ys, chosen);
+        }
+
+        boolean packed = chosen == DistanceStorage.TRIANGULAR_CHAR;
+        Path file = instanceDirectory(Instance.fingerprint(xs, ys, costs)).resolve("matrix.bin");
+        if (Files.isRegularFile(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                if (header.getInt(0) == MAGIC && header.getInt(4) == xs.length && header.getInt(8) == (packed ? 1 : 0)
+                        && header.getInt(12) == VERSION && channel.size() == HEADER_BYTES + MappedDistanceMatrix.byteLength(xs.length, packed)) {
+                    return MappedDistanceMatrix.map(channel, HEADER_BYTES, xs.length, packed);
+                }
+                System.err.println("Ignoring mismatched cache file " + file);
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable cache file " + file + ": " + e.getMessage());
+            }
+        }
+
+        DistanceMatrix matrix = DistanceMatrices.build(xs, ys, chosen);
+        try {
+            int n = xs.length;
+            writeAtomically(file, out -> {
+                out.putInt(MAGIC);
+                out.putInt(n);
+                out.putInt(packed ? 1 : 0);
+                out.putInt(VERSION);
+                for (int i = 1; i < n; i++) {
+                    for (int j = 0; j < i; j++) {
+                        if (packed) {
+                            out.putChar((char) matrix.get(i, j));
+                        } else {
+                            out.putInt(matrix.get(i, j));
+                        }
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Could not write cache file " + file + ": " + e.getMessage());
+        }
+        return matrix;
+    }
+
+    private interface Content {
+        void write(ChannelWriter out) throws IOException;
+    }
+
+    private static void writeAtomically(Path file, Content content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ChannelWriter out = new ChannelWriter(channel);
+                content.write(out);
+                out.flush();
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.politechnika.io;
+
+import org.politechnika.model.Instance;
+import org.politechnika.model.distance.DistanceMatrices;
+import org.politechnika.model.distance.DistanceMatrix;
+import org.politechnika.model.distance.DistanceStorage;
+import org.politechnika.model.distance.MappedDistanceMatrix;
+import org.politechnika.util.CandidateEdges;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Binary instance file, all values little-endian:
+ * <pre>
+ * header     magic "TSPI", version, n, flags, k, 3 reserved ints (32 bytes)
+ * xs, ys     n doubles each
+ * costs      n ints
+ * candidates n * k ints, row by row (FLAG_CANDIDATES)
+ * padding    up to a multiple of 8 bytes
+ * matrix     lower triangle, n * (n - 1) / 2 chars (FLAG_MATRIX_CHAR) or ints (FLAG_MATRIX)
+ * </pre>
+ * Reading maps the file instead of parsing it: arrays are bulk-copied from the mapping and the
+ * matrix stays mapped, see {@link MappedDistanceMatrix}.
+ */
+public final class BinaryInstanceFormat {
+
+    public static final int MAGIC = 0x49505354;
+    public static final int VERSION = 1;
+    static final int FLAG_MATRIX = 1;
+    static final int FLAG_MATRIX_CHAR = 2;
+    static final int FLAG_CANDIDATES = 4;
+    static final int HEADER_BYTES = 32;
+
+    private BinaryInstanceFormat() {
+    }
+
+    public static Instance read(Path path) throws IOException {
+        return read(path, DistanceStorage.AUTO);
+    }
+
+    // storage builds the matrix when the file does not contain one
+    public static Instance read(Path path, DistanceStorage storage) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a binary instance file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary instance version " + version + ": " + path);
+            }
+            int n = header.getInt();
+            int flags = header.getInt();
+            int k = header.getInt();
+
+            long offset = HEADER_BYTES;
+            ByteBuffer arrays = map(channel, offset, 20L * n);
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            int[] costs = new int[n];
+            arrays.asDoubleBuffer().get(xs);
+            arrays.position(8 * n);
+            arrays.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(ys);
+            arrays.position(16 * n);
+            arrays.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(costs);
+            offset += 20L * n;
+
+            int[][] candidates = null;
+            if ((flags & FLAG_CANDIDATES) != 0) {
+                ByteBuffer table = map(channel, offset, 4L * n * k);
+                candidates = new int[n][k];
+                for (int i = 0; i < n; i++) {
+                    table.asIntBuffer().get(i * k, candidates[i]);
+                }
+                offset += 4L * n * k;
+            }
+            offset = align(offset);
+
+            DistanceMatrix matrix;
+            if ((flags & FLAG_MATRIX) != 0) {
+                matrix = MappedDistanceMatrix.map(channel, offset, n, (flags & FLAG_MATRIX_CHAR) != 0);
+            } else {
+                matrix = DistanceMatrices.build(xs, ys, storage);
+            }
+
+            return new Instance(instanceName(path), xs, ys, costs, matrix, candidates);
+        }
+    }
+
+    // candidateCount 0 writes no candidate table
+    public static void write(Instance instance, Path path, boolean includeMatrix, int candidateCount)
+            throws IOException {
+        int n = instance.getTotalNodes();
+        int maxDistance = 0;
+        if (includeMatrix) {
+            for (int i = 1; i < n; i++) {
+                for (int j = 0; j < i; j++) {
+                    maxDistance = Math.max(maxDistance, instance.getDistance(i, j));
+                }
+            }
+        }
+        boolean packed = maxDistance <= Character.MAX_VALUE;
+        CandidateEdges candidateEdges = candidateCount > 0 ? new CandidateEdges(instance, candidateCount) : null;
+        int k = candidateEdges == null ? 0 : candidateEdges.getCandidateCount();
+
+        int flags = (includeMatrix ? FLAG_MATRIX : 0) | (includeMatrix && packed ? FLAG_MATRIX_CHAR : 0)
+                | (candidateEdges != null ? FLAG_CANDIDATES : 0);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ChannelWriter out = new ChannelWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(n);
+            out.putInt(flags);
+            out.putInt(k);
+            out.putInt(0);
+            out.putInt(0);
+            out.putInt(0);
+
+            for (int i = 0; i < n; i++) out.putDouble(instance.getX(i));
+            for (int i = 0; i < n; i++) out.putDouble(instance.getY(i));
+            for (int i = 0; i < n; i++) out.putInt(instance.getCost(i));
+
+            if (candidateEdges != null) {
+                for (int i = 0; i < n; i++) {
+                    for (int candidate : candidateEdges.getCandidateNeighbors(i)) {
+                        out.putInt(candidate);
+                    }
+                }
+            }
+            while (out.written() % 8 != 0) {
+                out.putByte((byte) 0);
+            }
+
+            if (includeMatrix) {
+                for (int i = 1; i < n; i++) {
+                    for (int j = 0; j < i; j++) {
+                        if (packed) {
+                            out.putChar((char) instance.getDistance(i, j));
+                        } else {
+                            out.putInt(instance.getDistance(i, j));
+                        }
+                    }
+                }
+            }
+            out.flush();
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        if (offset + length > channel.size()) {
+            throw new IOException("Truncated binary instance file");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static String instanceName(Path path) {
+        return path.getFileName().toString().replaceFirst("[.][^.]+$", "");
+    }
+}
@@ -0,0 +1,58 @@
+package org.politechnika.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Sequential little-endian writes through a fixed direct buffer.
+ */
+final class ChannelWriter {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+    private long written;
+
+    ChannelWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    long written() {
+        return written + buffer.position();
+    }
+
+    void putByte(byte value) throws IOException {
+        ensure(Byte.BYTES);
+        buffer.put(value);
+    }
+
+    void putChar(char value) throws IOException {
+        ensure(Character.BYTES);
+        buffer.putChar(value);
+    }
+
+    void putInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void putDouble(double value) throws IOException {
+        ensure(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
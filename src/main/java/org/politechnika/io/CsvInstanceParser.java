@@ -0,0 +1,249 @@
+package org.politechnika.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+
+/**
+ * Parses {@code x;y;cost} lines straight from bytes into primitive arrays. Large files are split
+ * into byte ranges that are mapped and parsed in parallel; a range owns every line starting
+ * inside it, so the chunks only need to agree on where lines start.
+ */
+class CsvInstanceParser {
+
+    private static final int CHUNK_BYTES = 8 << 20;
+    private static final long[] POWERS_OF_TEN = new long[19];
+    private static final double[] EXACT_POWERS = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        EXACT_POWERS[0] = 1;
+        for (int i = 1; i < EXACT_POWERS.length; i++) EXACT_POWERS[i] = EXACT_POWERS[i - 1] * 10;
+    }
+
+    final double[] xs;
+    final double[] ys;
+    final int[] costs;
+
+    private CsvInstanceParser(double[] xs, double[] ys, int[] costs) {
+        this.xs = xs;
+        this.ys = ys;
+        this.costs = costs;
+    }
+
+    static CsvInstanceParser parse(byte[] content) throws IOException {
+        Chunk chunk = new Chunk(ByteBuffer.wrap(content), 0, content.length);
+        chunk.parse();
+        return new CsvInstanceParser(Arrays.copyOf(chunk.xs, chunk.count),
+                Arrays.copyOf(chunk.ys, chunk.count), Arrays.copyOf(chunk.costs, chunk.count));
+    }
+
+    static CsvInstanceParser parse(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunkCount = (int) Math.max(1, (size + CHUNK_BYTES - 1) / CHUNK_BYTES);
+            Chunk[] chunks = new Chunk[chunkCount];
+            try {
+                IntStream.range(0, chunkCount).parallel().forEach(c -> {
+                    try {
+                        chunks[c] = mapChunk(channel, size, (long) c * CHUNK_BYTES);
+                        chunks[c].parse();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int total = 0;
+            for (Chunk chunk : chunks) total += chunk.count;
+            double[] xs = new double[total];
+            double[] ys = new double[total];
+            int[] costs = new int[total];
+            int offset = 0;
+            for (Chunk chunk : chunks) {
+                System.arraycopy(chunk.xs, 0, xs, offset, chunk.count);
+                System.arraycopy(chunk.ys, 0, ys, offset, chunk.count);
+                System.arraycopy(chunk.costs, 0, costs, offset, chunk.count);
+                offset += chunk.count;
+            }
+            return new CsvInstanceParser(xs, ys, costs);
+        }
+    }
+
+    // one byte early to see whether a line starts at the range start, one chunk past its end so the
+    // last line may run over the boundary
+    private static Chunk mapChunk(FileChannel channel, long size, long start) throws IOException {
+        long mapStart = Math.max(0, start - 1);
+        long mapEnd = Math.min(size, start + 2L * CHUNK_BYTES);
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int from = (int) (start - mapStart);
+        int to = (int) (Math.min(size, start + CHUNK_BYTES) - mapStart);
+        if (from > 0) {
+            // a line starting before the range belongs to the previous chunk
+            while (from < buffer.limit() && buffer.get(from - 1) != '\n') from++;
+        }
+        return new Chunk(buffer, from, to);
+    }
+
+    private static final class Chunk {
+        private final ByteBuffer buffer;
+        private final int from;
+        private final int to;
+        private int position;
+        double[] xs = new double[1024];
+        double[] ys = new double[1024];
+        int[] costs = new int[1024];
+        int count;
+
+        Chunk(ByteBuffer buffer, int from, int to) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        void parse() throws IOException {
+            int limit = buffer.limit();
+            position = from;
+            while (position < to) {
+                int lineStart = position;
+                skipSpaces();
+                if (position >= limit || isLineEnd(buffer.get(position))) {
+                    // blank line
+                    skipLine();
+                    continue;
+                }
+                if (count == xs.length) grow();
+                xs[count] = parseDouble(lineStart);
+                expectSeparator(lineStart);
+                ys[count] = parseDouble(lineStart);
+                expectSeparator(lineStart);
+                long cost = parseLong(lineStart);
+                if (cost != (int) cost) throw invalidLine(lineStart);
+                costs[count] = (int) cost;
+                skipSpaces();
+                if (position < limit && !isLineEnd(buffer.get(position))) throw invalidLine(lineStart);
+                skipLine();
+                count++;
+            }
+        }
+
+        private double parseDouble(int lineStart) throws IOException {
+            skipSpaces();
+            int start = position;
+            int limit = buffer.limit();
+            boolean negative = false;
+            if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negative = buffer.get(position++) == '-';
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = 0;
+            boolean fraction = false;
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b >= '0' && b <= '9') {
+                    mantissa = digits < 18 ? mantissa * 10 + (b - '0') : mantissa;
+                    digits++;
+                    if (fraction) fractionDigits++;
+                } else if (b == '.' && !fraction) {
+                    fraction = true;
+                } else {
+                    break;
+                }
+                position++;
+            }
+            if (digits == 0) throw invalidLine(lineStart);
+            if (position < limit && (buffer.get(position) == 'e' || buffer.get(position) == 'E')
+                    || digits > 15 || fractionDigits >= EXACT_POWERS.length) {
+                return slowDouble(start, lineStart);
+            }
+            // exact: the mantissa and the power of ten are both representable doubles
+            double value = fractionDigits == 0 ? mantissa : mantissa / EXACT_POWERS[fractionDigits];
+            return negative ? -value : value;
+        }
+
+        private double slowDouble(int start, int lineStart) throws IOException {
+            int limit = buffer.limit();
+            position = start;
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b == ';' || b == ' ' || b == '\t' || isLineEnd(b)) break;
+                position++;
+            }
+            try {
+                return Double.parseDouble(text(start, position));
+            } catch (NumberFormatException e) {
+                throw invalidLine(lineStart);
+            }
+        }
+
+        private long parseLong(int lineStart) throws IOException {
+            skipSpaces();
+            int limit = buffer.limit();
+            boolean negative = false;
+            if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negative = buffer.get(position++) == '-';
+            }
+            long value = 0;
+            int digits = 0;
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b < '0' || b > '9') break;
+                if (++digits >= POWERS_OF_TEN.length) throw invalidLine(lineStart);
+                value = value * 10 + (b - '0');
+                position++;
+            }
+            if (digits == 0) throw invalidLine(lineStart);
+            return negative ? -value : value;
+        }
+
+        private void expectSeparator(int lineStart) throws IOException {
+            skipSpaces();
+            if (position >= buffer.limit() || buffer.get(position) != ';') throw invalidLine(lineStart);
+            position++;
+        }
+
+        private void skipSpaces() {
+            int limit = buffer.limit();
+            while (position < limit && (buffer.get(position) == ' ' || buffer.get(position) == '\t')) position++;
+        }
+
+        private void skipLine() {
+            int limit = buffer.limit();
+            while (position < limit && buffer.get(position) != '\n') position++;
+            position++;
+        }
+
+        private static boolean isLineEnd(byte b) {
+            return b == '\n' || b == '\r';
+        }
+
+        private void grow() {
+            xs = Arrays.copyOf(xs, 2 * xs.length);
+            ys = Arrays.copyOf(ys, 2 * ys.length);
+            costs = Arrays.copyOf(costs, 2 * costs.length);
+        }
+
+        private String text(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private IOException invalidLine(int lineStart) {
+            int end = lineStart;
+            while (end < buffer.limit() && !isLineEnd(buffer.get(end))) end++;
+            return new IOException("Invalid line format: " + text(lineStart, end).trim());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.politechnika.io;
+
+import org.politechnika.model.Instance;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+/**
+ * Converts a CSV instance, a path or a bundled instance name, into {@link BinaryInstanceFormat}.
+ * Usage: {@code InstanceConverter <instance.csv> <output.bin> [--matrix] [--candidates k]}
+ */
+public class InstanceConverter {
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: InstanceConverter <instance.csv> <output.bin> [--matrix] [--candidates k]");
+            System.exit(1);
+        }
+
+        boolean includeMatrix = false;
+        int candidateCount = 0;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--matrix" -> includeMatrix = true;
+                case "--candidates" -> candidateCount = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            Path input = Path.of(args[0]);
+            Instance instance = Files.isRegularFile(input)
+                    ? InstanceReader.readInstance(input)
+                    : InstanceReader.readInstance(args[0]);
+            Path output = Path.of(args[1]);
+            BinaryInstanceFormat.write(instance, output, includeMatrix, candidateCount);
+            System.out.printf("Converted %s (%d nodes) to %s in %d ms%n", instance.getName(),
+                    instance.getTotalNodes(), output, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
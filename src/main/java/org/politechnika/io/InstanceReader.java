@@ -1,61 +1,56 @@
 package org.politechnika.io;
 
 import org.politechnika.model.Instance;
-import org.politechnika.model.Node;
-import org.politechnika.util.DistanceCalculator;
+import org.politechnika.model.distance.DistanceMatrix;
+import org.politechnika.model.distance.DistanceStorage;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 
 public class InstanceReader {
 
     public static Instance readInstance(String fileName) throws IOException {
-        String resourcePath = "/instances/" + fileName;
-        InputStream inputStream = InstanceReader.class.getResourceAsStream(resourcePath);
-        
-        if (inputStream == null) {
-            throw new IOException("File not found: " + resourcePath);
-        }
+        return readInstance(fileName, DistanceStorage.AUTO);
+    }
 
-        List<Node> nodes = new ArrayList<>();
-        int nodeId = 0;
+    public static Instance readInstance(String fileName, DistanceStorage storage) throws IOException {
+        String resourcePath = "/instances/" + fileName;
+        CsvInstanceParser parsed;
 
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) {
-                    continue;
-                }
+        try (InputStream inputStream = InstanceReader.class.getResourceAsStream(resourcePath)) {
+            if (inputStream == null) {
+                throw new IOException("File not found: " + resourcePath);
+            }
+            parsed = CsvInstanceParser.parse(inputStream.readAllBytes());
+        }
 
-                String[] parts = line.split(";");
-                if (parts.length != 3) {
-                    throw new IOException("Invalid line format: " + line);
-                }
+        return toInstance(fileName, parsed, storage);
+    }
 
-                double x = Double.parseDouble(parts[0].trim());
-                double y = Double.parseDouble(parts[1].trim());
-                int cost = Integer.parseInt(parts[2].trim());
+    public static Instance readInstance(Path path) throws IOException {
+        return readInstance(path, DistanceStorage.AUTO);
+    }
 
-                nodes.add(new Node(nodeId++, x, y, cost));
-            }
+    public static Instance readInstance(Path path, DistanceStorage storage) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            throw new IOException("File not found: " + path);
         }
+        return toInstance(path.getFileName().toString(), CsvInstanceParser.parse(path), storage);
+    }
 
-        if (nodes.isEmpty()) {
+    private static Instance toInstance(String fileName, CsvInstanceParser parsed, DistanceStorage storage)
+            throws IOException {
+        if (parsed.xs.length == 0) {
             throw new IOException("No nodes found in file: " + fileName);
         }
 
-        int[][] distanceMatrix = DistanceCalculator.buildDistanceMatrix(nodes);
+        DistanceMatrix distanceMatrix = ArtifactCache.distanceMatrix(parsed.xs, parsed.ys, parsed.costs, storage);
 
         String instanceName = fileName.replaceFirst("[.][^.]+$", "");
 
-        return new Instance(instanceName, nodes, distanceMatrix);
+        return new Instance(instanceName, parsed.xs, parsed.ys, parsed.costs, distanceMatrix, null);
     }
 }
@@ -62,7 +62,7 @@ public class ResultWriter {
         System.out.printf("Min Time: %d ms%n", minTime);
         System.out.printf("Max Time: %d ms%n", maxTime);
         System.out.printf("Avg Time: %.2f ms%n", avgTime);
-        System.out.println("Best solution nodes: " + bestSolution.getNodeIds());
+        System.out.println("Best solution nodes: " + bestSolution.getNodeIdsReadOnly());
     }
 
     public static void saveAllSolutions(String instanceName, String algorithmName, 
@@ -76,7 +76,7 @@ public class ResultWriter {
 
             for (int i = 0; i < solutions.size(); i++) {
                 Solution solution = solutions.get(i);
-                String nodesList = solution.getNodeIds().toString()
+                String nodesList = solution.getNodeIdsReadOnly().toString()
                     .replace("[", "")
                     .replace("]", "")
                     .replace(", ", " ");
@@ -102,7 +102,7 @@ public class ResultWriter {
         try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
             writer.println("ObjectiveValue;StartNode;ExecutionTimeMs;NodeIndices");
 
-            String nodesList = solution.getNodeIds().toString()
+            String nodesList = solution.getNodeIdsReadOnly().toString()
                 .replace("[", "")
                 .replace("]", "")
                 .replace(", ", " ");
@@ -1,19 +1,46 @@
 package org.politechnika.model;
 
+import org.politechnika.model.distance.DistanceMatrix;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 
+/**
+ * Nodes are stored as parallel arrays of coordinates and costs indexed by node id, {@link Node}
+ * objects are only created on demand.
+ */
 public class Instance {
     private final String name;
-    private final List<Node> nodes;
-    private final int[][] distanceMatrix;
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] costs;
+    private final int totalNodes;
+    private final DistanceMatrix distanceMatrix;
     private final int nodesToSelect;
+    private final int[][] storedCandidates;
+    private final Map<String, Artifact> artifacts = new ConcurrentHashMap<>();
+    private volatile long fingerprint;
+
+    public Instance(String name, List<Node> nodes, DistanceMatrix distanceMatrix) {
+        this(name, nodes.stream().mapToDouble(Node::getX).toArray(), nodes.stream().mapToDouble(Node::getY).toArray(),
+                nodes.stream().mapToInt(Node::getCost).toArray(), distanceMatrix, null);
+    }
 
-    public Instance(String name, List<Node> nodes, int[][] distanceMatrix) {
+    // the arrays are taken over without copying, storedCandidates may be null
+    public Instance(String name, double[] xs, double[] ys, int[] costs, DistanceMatrix distanceMatrix,
+                    int[][] storedCandidates) {
         this.name = name;
-        this.nodes = nodes;
+        this.xs = xs;
+        this.ys = ys;
+        this.costs = costs;
+        this.totalNodes = costs.length;
         this.distanceMatrix = distanceMatrix;
-        this.nodesToSelect = (int) Math.ceil(nodes.size() / 2.0);
+        this.nodesToSelect = (int) Math.ceil(totalNodes / 2.0);
+        this.storedCandidates = storedCandidates;
     }
 
     public String getName() {
@@ -21,6 +48,10 @@ public class Instance {
     }
 
     public List<Node> getNodes() {
+        List<Node> nodes = new ArrayList<>(totalNodes);
+        for (int i = 0; i < totalNodes; i++) {
+            nodes.add(getNode(i));
+        }
         return nodes;
     }
 
@@ -29,20 +60,109 @@ public class Instance {
     }
 
     public int getTotalNodes() {
-        return nodes.size();
+        return totalNodes;
     }
 
     public Node getNode(int id) {
-        return nodes.get(id);
+        return new Node(id, xs[id], ys[id], costs[id]);
+    }
+
+    public double getX(int nodeId) {
+        return xs[nodeId];
+    }
+
+    public double getY(int nodeId) {
+        return ys[nodeId];
     }
 
     public int getDistance(int nodeId1, int nodeId2) {
-        return distanceMatrix[nodeId1][nodeId2];
+        return distanceMatrix.get(nodeId1, nodeId2);
+    }
+
+    public void getDistanceRow(int nodeId, int[] out) {
+        distanceMatrix.row(nodeId, out);
+    }
+
+    public int getCost(int nodeId) {
+        return costs[nodeId];
+    }
+
+    public DistanceMatrix getDistanceMatrix() {
+        return distanceMatrix;
+    }
+
+    // the arrays below are shared with the instance and must not be modified
+    public int[] getCosts() {
+        return costs;
+    }
+
+    public double[] getXs() {
+        return xs;
+    }
+
+    public double[] getYs() {
+        return ys;
+    }
+
+    // distance plus half of the cost of both endpoints, a cycle's objective is the sum of its
+    // folded edges
+    public double getFoldedDistance(int nodeId1, int nodeId2) {
+        return distanceMatrix.get(nodeId1, nodeId2) + (costs[nodeId1] + costs[nodeId2]) / 2.0;
+    }
+
+    // candidate table shipped with the instance file, or null
+    public int[][] getStoredCandidates() {
+        return storedCandidates;
+    }
+
+    // identifies the instance in artifact caches independently of its name and distance storage
+    public long getFingerprint() {
+        long value = fingerprint;
+        if (value == 0) {
+            value = fingerprint(xs, ys, costs);
+            fingerprint = value;
+        }
+        return value;
+    }
+
+    public static long fingerprint(double[] xs, double[] ys, int[] costs) {
+        long hash = 0xcbf29ce484222325L ^ costs.length;
+        for (int i = 0; i < costs.length; i++) {
+            hash = (hash ^ Double.doubleToLongBits(xs[i])) * 0x100000001b3L;
+            hash = (hash ^ Double.doubleToLongBits(ys[i])) * 0x100000001b3L;
+            hash = (hash ^ costs[i]) * 0x100000001b3L;
+        }
+        // final avalanche so that similar instances differ in all bits
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        hash ^= hash >>> 31;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Preprocessing result computed once per key and shared by every algorithm on this instance.
+     * Computing one artifact may request another, so each key is computed under its own lock rather
+     * than the map's.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getArtifact(String key, Function<Instance, T> factory) {
+        return (T) artifacts.computeIfAbsent(key, k -> new Artifact()).get(this, factory);
+    }
+
+    private static final class Artifact {
+        private Object value;
+
+        synchronized Object get(Instance instance, Function<Instance, ?> factory) {
+            if (value == null) {
+                value = factory.apply(instance);
+            }
+            return value;
+        }
     }
 
     @Override
     public String toString() {
         return String.format("Instance{name=%s, totalNodes=%d, nodesToSelect=%d}",
-                name, nodes.size(), nodesToSelect);
+                name, totalNodes, nodesToSelect);
     }
 }
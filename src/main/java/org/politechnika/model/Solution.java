@@ -1,11 +1,13 @@
 package org.politechnika.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 
 public class Solution {
-    private final List<Integer> nodeIds;
+    private final int[] nodeIds;
     private final double objectiveValue;
     private final String algorithmName;
     private final int startNode;
@@ -16,7 +18,16 @@ public class Solution {
     }
 
     public Solution(List<Integer> nodeIds, double objectiveValue, String algorithmName, int startNode, long executionTimeMs) {
-        this.nodeIds = new ArrayList<>(nodeIds);
+        this(nodeIds.stream().mapToInt(Integer::intValue).toArray(), objectiveValue, algorithmName, startNode, executionTimeMs);
+    }
+
+    public Solution(int[] nodeIds, double objectiveValue, String algorithmName, int startNode) {
+        this(nodeIds, objectiveValue, algorithmName, startNode, 0);
+    }
+
+    // takes ownership of the array, callers must not modify it afterwards
+    public Solution(int[] nodeIds, double objectiveValue, String algorithmName, int startNode, long executionTimeMs) {
+        this.nodeIds = nodeIds;
         this.objectiveValue = objectiveValue;
         this.algorithmName = algorithmName;
         this.startNode = startNode;
@@ -27,29 +38,48 @@ public class Solution {
      * Returns a copy of the node IDs list. Use this when you need to modify the list.
      */
     public List<Integer> getNodeIds() {
-        return new ArrayList<>(nodeIds);
+        List<Integer> ids = new ArrayList<>(nodeIds.length);
+        for (int nodeId : nodeIds) {
+            ids.add(nodeId);
+        }
+        return ids;
     }
-    
+
     /**
-     * Returns an unmodifiable view of the node IDs list. 
+     * Returns an unmodifiable view of the node IDs list.
      * Use this for read-only access (much faster than getNodeIds()).
      */
     public List<Integer> getNodeIdsReadOnly() {
-        return nodeIds;
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return nodeIds[index];
+            }
+
+            @Override
+            public int size() {
+                return nodeIds.length;
+            }
+        };
     }
     
     /**
      * Get node ID at specific index. Faster than getNodeIds().get(i).
      */
     public int getNodeAt(int index) {
-        return nodeIds.get(index);
+        return nodeIds[index];
     }
     
     /**
      * Get size of solution. Faster than getNodeIds().size().
      */
     public int size() {
-        return nodeIds.size();
+        return nodeIds.length;
+    }
+
+    // shares the node array
+    public Solution withExecutionTime(long executionTimeMs) {
+        return new Solution(nodeIds, objectiveValue, algorithmName, startNode, executionTimeMs);
     }
 
     public double getObjectiveValue() {
@@ -71,6 +101,6 @@ public class Solution {
     @Override
     public String toString() {
         return String.format("Solution{algorithm=%s, startNode=%d, objective=%.2f, time=%dms, nodes=%s}",
-                algorithmName, startNode, objectiveValue, executionTimeMs, nodeIds);
+                algorithmName, startNode, objectiveValue, executionTimeMs, Arrays.toString(nodeIds));
     }
 }
@@ -0,0 +1,279 @@
+package org.politechnika.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Mutable tour used by the search algorithms, keeping the position of every node so moves apply in
+ * place. It also maintains a hash of its undirected edge set, the wrapping sum of {@link #edgeKey}
+ * over the edges, which does not depend on the start or direction.
+ */
+public class Tour implements TourView {
+    private final int[] order;
+    private final int[] position;
+    private int size;
+    private double objectiveValue;
+    private long edgeHash;
+
+    public Tour(int totalNodes) {
+        this.order = new int[totalNodes];
+        this.position = new int[totalNodes];
+        Arrays.fill(position, -1);
+    }
+
+    public Tour(Tour other) {
+        this.order = other.order.clone();
+        this.position = other.position.clone();
+        this.size = other.size;
+        this.objectiveValue = other.objectiveValue;
+        this.edgeHash = other.edgeHash;
+    }
+
+    public static Tour of(Instance instance, List<Integer> nodeIds, double objectiveValue) {
+        Tour tour = new Tour(instance.getTotalNodes());
+        for (int nodeId : nodeIds) {
+            tour.append(nodeId);
+        }
+        tour.objectiveValue = objectiveValue;
+        return tour;
+    }
+
+    public static Tour of(Instance instance, Solution solution) {
+        Tour tour = new Tour(instance.getTotalNodes());
+        for (int i = 0; i < solution.size(); i++) {
+            tour.append(solution.getNodeAt(i));
+        }
+        tour.objectiveValue = solution.getObjectiveValue();
+        return tour;
+    }
+
+    public void copyFrom(Tour other) {
+        assign(other.order, other.size);
+        this.objectiveValue = other.objectiveValue;
+    }
+
+    public static long edgeKey(int nodeId1, int nodeId2) {
+        long z = (((long) Math.min(nodeId1, nodeId2) << 32) | Math.max(nodeId1, nodeId2)) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // 0 for fewer than two nodes
+    public long getEdgeHash() {
+        return edgeHash;
+    }
+
+    private long edgeAt(int index) {
+        return edgeKey(order[index], order[nextIndex(index)]);
+    }
+
+    private void recomputeEdgeHash() {
+        long hash = 0;
+        if (size >= 2) {
+            for (int i = 0; i < size; i++) {
+                hash += edgeAt(i);
+            }
+        }
+        edgeHash = hash;
+    }
+
+    // the objective value is left untouched
+    public void assign(int[] nodeIds, int count) {
+        for (int i = 0; i < size; i++) {
+            position[order[i]] = -1;
+        }
+        System.arraycopy(nodeIds, 0, order, 0, count);
+        for (int i = 0; i < count; i++) {
+            position[order[i]] = i;
+        }
+        this.size = count;
+        recomputeEdgeHash();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getNodeAt(int index) {
+        return order[index];
+    }
+
+    @Override
+    public int positionOf(int nodeId) {
+        return position[nodeId];
+    }
+
+    @Override
+    public boolean contains(int nodeId) {
+        return position[nodeId] >= 0;
+    }
+
+    @Override
+    public int prevIndex(int index) {
+        return index == 0 ? size - 1 : index - 1;
+    }
+
+    @Override
+    public int nextIndex(int index) {
+        return index == size - 1 ? 0 : index + 1;
+    }
+
+    @Override
+    public int prevNode(int index) {
+        return order[prevIndex(index)];
+    }
+
+    @Override
+    public int nextNode(int index) {
+        return order[nextIndex(index)];
+    }
+
+    @Override
+    public double getObjectiveValue() {
+        return objectiveValue;
+    }
+
+    public void setObjectiveValue(double objectiveValue) {
+        this.objectiveValue = objectiveValue;
+    }
+
+    public void addToObjectiveValue(double delta) {
+        this.objectiveValue += delta;
+    }
+
+    public void append(int nodeId) {
+        if (size >= 2) {
+            int first = order[0];
+            int last = order[size - 1];
+            edgeHash += edgeKey(last, nodeId) + edgeKey(nodeId, first) - edgeKey(last, first);
+        } else if (size == 1) {
+            edgeHash = 2 * edgeKey(order[0], nodeId);
+        }
+        order[size] = nodeId;
+        position[nodeId] = size;
+        size++;
+    }
+
+    public void insert(int index, int nodeId) {
+        if (size >= 2) {
+            int prev = order[index == 0 ? size - 1 : index - 1];
+            int next = order[index == size ? 0 : index];
+            edgeHash += edgeKey(prev, nodeId) + edgeKey(nodeId, next) - edgeKey(prev, next);
+        }
+        System.arraycopy(order, index, order, index + 1, size - index);
+        order[index] = nodeId;
+        size++;
+        for (int i = index; i < size; i++) {
+            position[order[i]] = i;
+        }
+        if (size == 2) {
+            recomputeEdgeHash();
+        }
+    }
+
+    public int remove(int index) {
+        int nodeId = order[index];
+        if (size >= 3) {
+            int prev = prevNode(index);
+            int next = nextNode(index);
+            edgeHash += edgeKey(prev, next) - edgeKey(prev, nodeId) - edgeKey(nodeId, next);
+        }
+        System.arraycopy(order, index + 1, order, index, size - index - 1);
+        size--;
+        position[nodeId] = -1;
+        for (int i = index; i < size; i++) {
+            position[order[i]] = i;
+        }
+        if (size < 3) {
+            recomputeEdgeHash();
+        }
+        return nodeId;
+    }
+
+    public void replace(int index, int nodeId) {
+        int old = order[index];
+        if (size >= 2) {
+            int prev = prevNode(index);
+            int next = nextNode(index);
+            edgeHash += edgeKey(prev, nodeId) + edgeKey(nodeId, next) - edgeKey(prev, old) - edgeKey(old, next);
+        }
+        position[old] = -1;
+        order[index] = nodeId;
+        position[nodeId] = index;
+    }
+
+    // an edge shared by both positions is taken out of the hash only once
+    public void swap(int index1, int index2) {
+        if (index1 == index2) {
+            return;
+        }
+        int prev1 = prevIndex(index1);
+        int prev2 = prevIndex(index2);
+        boolean skipPrev2 = prev2 == index1 || prev2 == prev1;
+        boolean skipIndex2 = index2 == prev1;
+        long before = edgeAt(prev1) + edgeAt(index1)
+                + (skipPrev2 ? 0 : edgeAt(prev2)) + (skipIndex2 ? 0 : edgeAt(index2));
+        exchange(index1, index2);
+        long after = edgeAt(prev1) + edgeAt(index1)
+                + (skipPrev2 ? 0 : edgeAt(prev2)) + (skipIndex2 ? 0 : edgeAt(index2));
+        edgeHash += after - before;
+    }
+
+    private void exchange(int index1, int index2) {
+        int node1 = order[index1];
+        int node2 = order[index2];
+        order[index1] = node2;
+        order[index2] = node1;
+        position[node2] = index1;
+        position[node1] = index2;
+    }
+
+    // index1 <= index2, only the two edges at the segment ends change
+    public void reverse(int index1, int index2) {
+        if (index1 >= index2) {
+            return;
+        }
+        if (index2 - index1 + 1 < size) {
+            int outerPrev = order[prevIndex(index1)];
+            int outerNext = order[nextIndex(index2)];
+            int first = order[index1];
+            int last = order[index2];
+            edgeHash += edgeKey(outerPrev, last) + edgeKey(first, outerNext)
+                    - edgeKey(outerPrev, first) - edgeKey(last, outerNext);
+        }
+        while (index1 < index2) {
+            exchange(index1++, index2--);
+        }
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(order, size);
+    }
+
+    public List<Integer> toList() {
+        List<Integer> nodeIds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            nodeIds.add(order[i]);
+        }
+        return nodeIds;
+    }
+
+    public Solution toSolution(String algorithmName, int startNode) {
+        return new Solution(toArray(), objectiveValue, algorithmName, startNode);
+    }
+
+    public Solution toSolution(String algorithmName, int startNode, long executionTimeMs) {
+        return new Solution(toArray(), objectiveValue, algorithmName, startNode, executionTimeMs);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Tour{size=%d, objective=%.2f, nodes=%s}",
+                size, objectiveValue, Arrays.toString(toArray()));
+    }
+}
@@ -0,0 +1,27 @@
+package org.politechnika.model;
+
+
+/**
+ * Read-only access to a tour, move deltas are evaluated against it without copying.
+ */
+public interface TourView {
+
+    int size();
+
+    int getNodeAt(int index);
+
+    // -1 when the node is not visited
+    int positionOf(int nodeId);
+
+    boolean contains(int nodeId);
+
+    int prevIndex(int index);
+
+    int nextIndex(int index);
+
+    int prevNode(int index);
+
+    int nextNode(int index);
+
+    double getObjectiveValue();
+}
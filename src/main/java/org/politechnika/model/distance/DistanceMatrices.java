@@ -0,0 +1,106 @@
+package org.politechnika.model.distance;
+
+import org.politechnika.model.Node;
+import org.politechnika.util.DistanceCalculator;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+
+/**
+ * Builds distance matrices in parallel, every pair of nodes is computed once.
+ */
+public final class DistanceMatrices {
+
+    private DistanceMatrices() {
+    }
+
+    private interface Setter {
+        void set(int nodeId1, int nodeId2, int distance);
+    }
+
+    public static DistanceMatrix build(List<Node> nodes, DistanceStorage storage) {
+        int n = nodes.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = nodes.get(i).getX();
+            ys[i] = nodes.get(i).getY();
+        }
+        return build(xs, ys, storage);
+    }
+
+    public static DistanceMatrix build(double[] xs, double[] ys, DistanceStorage storage) {
+        int n = xs.length;
+        if (storage == DistanceStorage.AUTO) {
+            storage = chooseStorage(xs, ys);
+        }
+
+        if (storage == DistanceStorage.ON_THE_FLY) {
+            return onTheFly(xs, ys);
+        }
+
+        DistanceMatrix matrix;
+        Setter setter;
+        switch (storage) {
+            case FULL_INT -> {
+                FullIntDistanceMatrix full = new FullIntDistanceMatrix(n);
+                matrix = full;
+                setter = full::set;
+            }
+            case FULL_CHAR -> {
+                FullCharDistanceMatrix full = new FullCharDistanceMatrix(n);
+                matrix = full;
+                setter = full::set;
+            }
+            case TRIANGULAR_INT -> {
+                TriangularIntDistanceMatrix triangular = new TriangularIntDistanceMatrix(n);
+                matrix = triangular;
+                setter = triangular::set;
+            }
+            case TRIANGULAR_CHAR -> {
+                TriangularCharDistanceMatrix triangular = new TriangularCharDistanceMatrix(n);
+                matrix = triangular;
+                setter = triangular::set;
+            }
+            default -> throw new IllegalArgumentException("Unknown distance storage: " + storage);
+        }
+
+        // row i computes the pairs (i, j) with j < i, rows never write the same entry
+        IntStream.range(1, n).parallel().forEach(i -> {
+            double x = xs[i];
+            double y = ys[i];
+            for (int j = 0; j < i; j++) {
+                setter.set(i, j, DistanceCalculator.calculateDistance(x, y, xs[j], ys[j]));
+            }
+        });
+        return matrix;
+    }
+
+    // as many cached rows as fit, at most 1024
+    private static final long ROW_CACHE_BYTES = 64L << 20;
+
+    public static OnTheFlyDistanceMatrix onTheFly(double[] xs, double[] ys) {
+        int n = xs.length;
+        int cachedRows = (int) Math.min(1024, ROW_CACHE_BYTES / ((long) Math.max(1, n) * Integer.BYTES));
+        return new OnTheFlyDistanceMatrix(xs, ys, cachedRows);
+    }
+
+    public static DistanceStorage chooseStorage(double[] xs, double[] ys) {
+        return DistanceStorage.choose(xs.length, maxDistance(xs, ys));
+    }
+
+    // rounded diagonal of the bounding box of all nodes
+    static long maxDistance(double[] xs, double[] ys) {
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        if (xs.length == 0) return 0;
+        return Math.round(Math.hypot(maxX - minX, maxY - minY));
+    }
+}
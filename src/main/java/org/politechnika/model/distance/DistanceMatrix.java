@@ -0,0 +1,22 @@
+package org.politechnika.model.distance;
+
+
+/**
+ * Symmetric matrix of rounded Euclidean distances, implementations differ in the memory layout.
+ */
+public interface DistanceMatrix {
+
+    int size();
+
+    int get(int nodeId1, int nodeId2);
+
+    default void row(int nodeId, int[] out) {
+        for (int other = 0; other < size(); other++) {
+            out[other] = get(nodeId, other);
+        }
+    }
+
+    DistanceStorage getStorage();
+
+    long memoryBytes();
+}
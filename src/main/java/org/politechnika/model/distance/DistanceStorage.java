@@ -0,0 +1,34 @@
+package org.politechnika.model.distance;
+
+
+/**
+ * Memory layout of a {@link DistanceMatrix}: FULL or only the TRIANGULAR half, CHAR for unsigned
+ * 16-bit values, or ON_THE_FLY computing distances when they are read.
+ */
+public enum DistanceStorage {
+    AUTO,
+    FULL_INT,
+    FULL_CHAR,
+    TRIANGULAR_INT,
+    TRIANGULAR_CHAR,
+    ON_THE_FLY;
+
+    static final long FULL_MATRIX_BUDGET_BYTES = 256L << 20;
+
+    // beyond this for the most compact triangle, distances are computed on demand
+    static final long MATRIX_BUDGET_BYTES = 2L << 30;
+
+    // smallest value type that holds the largest distance, full while it fits the full budget
+    public static DistanceStorage choose(int size, long maxDistance) {
+        boolean fitsInChar = maxDistance <= Character.MAX_VALUE;
+        long fullBytes = (long) size * size * (fitsInChar ? Character.BYTES : Integer.BYTES);
+        if (fullBytes <= FULL_MATRIX_BUDGET_BYTES) {
+            return fitsInChar ? FULL_CHAR : FULL_INT;
+        }
+        long triangularBytes = fullBytes / 2;
+        if (triangularBytes <= MATRIX_BUDGET_BYTES) {
+            return fitsInChar ? TRIANGULAR_CHAR : TRIANGULAR_INT;
+        }
+        return ON_THE_FLY;
+    }
+}
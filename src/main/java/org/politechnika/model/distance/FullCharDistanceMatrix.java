@@ -0,0 +1,40 @@
+package org.politechnika.model.distance;
+
+
+/**
+ * Row-major n x n matrix of unsigned 16-bit values, half the memory of {@link FullIntDistanceMatrix}.
+ */
+public class FullCharDistanceMatrix implements DistanceMatrix {
+    private final int size;
+    private final char[] values;
+
+    public FullCharDistanceMatrix(int size) {
+        this.size = size;
+        this.values = new char[Math.multiplyExact(size, size)];
+    }
+
+    void set(int nodeId1, int nodeId2, int distance) {
+        values[nodeId1 * size + nodeId2] = (char) distance;
+        values[nodeId2 * size + nodeId1] = (char) distance;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int get(int nodeId1, int nodeId2) {
+        return values[nodeId1 * size + nodeId2];
+    }
+
+    @Override
+    public DistanceStorage getStorage() {
+        return DistanceStorage.FULL_CHAR;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) values.length * Character.BYTES;
+    }
+}
@@ -0,0 +1,45 @@
+package org.politechnika.model.distance;
+
+
+/**
+ * Row-major n x n matrix of ints, distance(i, j) = values[i * n + j].
+ */
+public class FullIntDistanceMatrix implements DistanceMatrix {
+    private final int size;
+    private final int[] values;
+
+    public FullIntDistanceMatrix(int size) {
+        this.size = size;
+        this.values = new int[Math.multiplyExact(size, size)];
+    }
+
+    void set(int nodeId1, int nodeId2, int distance) {
+        values[nodeId1 * size + nodeId2] = distance;
+        values[nodeId2 * size + nodeId1] = distance;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int get(int nodeId1, int nodeId2) {
+        return values[nodeId1 * size + nodeId2];
+    }
+
+    @Override
+    public void row(int nodeId, int[] out) {
+        System.arraycopy(values, nodeId * size, out, 0, size);
+    }
+
+    @Override
+    public DistanceStorage getStorage() {
+        return DistanceStorage.FULL_INT;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) values.length * Integer.BYTES;
+    }
+}
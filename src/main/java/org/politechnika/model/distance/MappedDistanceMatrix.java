@@ -0,0 +1,78 @@
+package org.politechnika.model.distance;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Lower-triangle distance matrix read straight from a memory-mapped file, in the order of
+ * {@link TriangularIntDistanceMatrix}. Mapped in chunks of 1 GB that no value straddles, since a
+ * single mapping is limited to 2 GB.
+ */
+public class MappedDistanceMatrix implements DistanceMatrix {
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final int size;
+    private final boolean packed;
+    private final int valueShift;
+    private final ByteBuffer[] chunks;
+    private final long byteLength;
+
+    private MappedDistanceMatrix(int size, boolean packed, ByteBuffer[] chunks, long byteLength) {
+        this.size = size;
+        this.packed = packed;
+        this.valueShift = packed ? 1 : 2;
+        this.chunks = chunks;
+        this.byteLength = byteLength;
+    }
+
+    public static long byteLength(int size, boolean packed) {
+        return (long) size * (size - 1) / 2 * (packed ? Character.BYTES : Integer.BYTES);
+    }
+
+    // packed for unsigned 16-bit values, otherwise 32-bit ints, both little-endian
+    public static MappedDistanceMatrix map(FileChannel channel, long offset, int size, boolean packed)
+            throws IOException {
+        long length = byteLength(size, packed);
+        int chunkCount = (int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT);
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            long start = (long) c << CHUNK_SHIFT;
+            long chunkLength = Math.min(1L << CHUNK_SHIFT, length - start);
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, chunkLength)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new MappedDistanceMatrix(size, packed, chunks, length);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int get(int nodeId1, int nodeId2) {
+        if (nodeId1 == nodeId2) return 0;
+        long high = Math.max(nodeId1, nodeId2);
+        long low = Math.min(nodeId1, nodeId2);
+        long byteOffset = (high * (high - 1) / 2 + low) << valueShift;
+        ByteBuffer chunk = chunks[(int) (byteOffset >>> CHUNK_SHIFT)];
+        int position = (int) (byteOffset & CHUNK_MASK);
+        return packed ? chunk.getChar(position) : chunk.getInt(position);
+    }
+
+    @Override
+    public DistanceStorage getStorage() {
+        return packed ? DistanceStorage.TRIANGULAR_CHAR : DistanceStorage.TRIANGULAR_INT;
+    }
+
+    // the mapped region lives outside the Java heap
+    @Override
+    public long memoryBytes() {
+        return byteLength;
+    }
+}
@@ -0,0 +1,83 @@
+package org.politechnika.model.distance;
+
+
+/**
+ * Distances computed from the coordinates on demand with a direct-mapped row cache: row i lives in
+ * slot i % slots. Only bulk {@link #row} reads install rows, a point lookup uses a cached row of
+ * either endpoint or computes the distance, which is cheaper than evicting a row.
+ */
+public class OnTheFlyDistanceMatrix implements DistanceMatrix {
+
+    private static final class CachedRow {
+        final int nodeId;
+        final int[] distances;
+
+        CachedRow(int nodeId, int[] distances) {
+            this.nodeId = nodeId;
+            this.distances = distances;
+        }
+    }
+
+    private final double[] xs;
+    private final double[] ys;
+    private final CachedRow[] cache;
+
+    public OnTheFlyDistanceMatrix(double[] xs, double[] ys, int cachedRows) {
+        this.xs = xs;
+        this.ys = ys;
+        this.cache = new CachedRow[Math.max(1, cachedRows)];
+    }
+
+    private int compute(int nodeId1, int nodeId2) {
+        double dx = xs[nodeId1] - xs[nodeId2];
+        double dy = ys[nodeId1] - ys[nodeId2];
+        return (int) Math.round(Math.sqrt(dx * dx + dy * dy));
+    }
+
+    @Override
+    public int size() {
+        return xs.length;
+    }
+
+    @Override
+    public int get(int nodeId1, int nodeId2) {
+        CachedRow row = cache[nodeId1 % cache.length];
+        if (row != null && row.nodeId == nodeId1) {
+            return row.distances[nodeId2];
+        }
+        row = cache[nodeId2 % cache.length];
+        if (row != null && row.nodeId == nodeId2) {
+            return row.distances[nodeId1];
+        }
+        return compute(nodeId1, nodeId2);
+    }
+
+    @Override
+    public void row(int nodeId, int[] out) {
+        int slot = nodeId % cache.length;
+        CachedRow row = cache[slot];
+        if (row == null || row.nodeId != nodeId) {
+            int[] distances = new int[xs.length];
+            for (int other = 0; other < xs.length; other++) {
+                distances[other] = compute(nodeId, other);
+            }
+            row = new CachedRow(nodeId, distances);
+            cache[slot] = row;
+        }
+        System.arraycopy(row.distances, 0, out, 0, xs.length);
+    }
+
+    @Override
+    public DistanceStorage getStorage() {
+        return DistanceStorage.ON_THE_FLY;
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 2L * xs.length * Double.BYTES;
+        for (CachedRow row : cache) {
+            if (row != null) bytes += (long) row.distances.length * Integer.BYTES;
+        }
+        return bytes;
+    }
+}
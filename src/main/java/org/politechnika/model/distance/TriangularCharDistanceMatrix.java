@@ -0,0 +1,39 @@
+package org.politechnika.model.distance;
+
+
+/**
+ * Lower triangle of unsigned 16-bit values, the most compact layout: about n * n bytes.
+ */
+public class TriangularCharDistanceMatrix implements DistanceMatrix {
+    private final int size;
+    private final char[] values;
+
+    public TriangularCharDistanceMatrix(int size) {
+        this.size = size;
+        this.values = new char[Math.toIntExact((long) size * (size - 1) / 2)];
+    }
+
+    void set(int nodeId1, int nodeId2, int distance) {
+        values[TriangularIntDistanceMatrix.index(nodeId1, nodeId2)] = (char) distance;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int get(int nodeId1, int nodeId2) {
+        return nodeId1 == nodeId2 ? 0 : values[TriangularIntDistanceMatrix.index(nodeId1, nodeId2)];
+    }
+
+    @Override
+    public DistanceStorage getStorage() {
+        return DistanceStorage.TRIANGULAR_CHAR;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) values.length * Character.BYTES;
+    }
+}
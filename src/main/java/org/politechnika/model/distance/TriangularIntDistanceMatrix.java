@@ -0,0 +1,45 @@
+package org.politechnika.model.distance;
+
+
+/**
+ * Entries below the diagonal row by row, distance(i, j) for i > j at i * (i - 1) / 2 + j.
+ */
+public class TriangularIntDistanceMatrix implements DistanceMatrix {
+    private final int size;
+    private final int[] values;
+
+    public TriangularIntDistanceMatrix(int size) {
+        this.size = size;
+        this.values = new int[Math.toIntExact((long) size * (size - 1) / 2)];
+    }
+
+    static int index(int nodeId1, int nodeId2) {
+        int high = Math.max(nodeId1, nodeId2);
+        int low = Math.min(nodeId1, nodeId2);
+        return (int) ((long) high * (high - 1) / 2) + low;
+    }
+
+    void set(int nodeId1, int nodeId2, int distance) {
+        values[index(nodeId1, nodeId2)] = distance;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int get(int nodeId1, int nodeId2) {
+        return nodeId1 == nodeId2 ? 0 : values[index(nodeId1, nodeId2)];
+    }
+
+    @Override
+    public DistanceStorage getStorage() {
+        return DistanceStorage.TRIANGULAR_INT;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) values.length * Integer.BYTES;
+    }
+}
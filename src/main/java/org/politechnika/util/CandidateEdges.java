@@ -1,63 +1,76 @@
 package org.politechnika.util;
 
 import org.politechnika.model.Instance;
-import org.politechnika.model.Node;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 
+/**
+ * For every node the k nodes with the smallest distance + cost, ties by node id, from k-nearest
+ * queries on the {@link KdTree}. A stored candidate table with at least k columns is used instead
+ * when the instance carries one.
+ */
 public class CandidateEdges {
     private final int candidateCount;
-    private final Map<Integer, List<Integer>> candidateNeighbors;
+    private final int[][] candidateNeighbors;
+    private final int[][] sortedNeighbors;
 
     public CandidateEdges(Instance instance, int candidateCount) {
-        this.candidateCount = candidateCount;
-        this.candidateNeighbors = new HashMap<>();
-        precomputeCandidates(instance);
+        int totalNodes = instance.getTotalNodes();
+        this.candidateCount = Math.min(candidateCount, Math.max(0, totalNodes - 1));
+        this.candidateNeighbors = new int[totalNodes][];
+        this.sortedNeighbors = new int[totalNodes][];
+
+        int[][] stored = instance.getStoredCandidates();
+        KdTree tree = KdTree.of(instance);
+        boolean useStored = stored != null && stored.length == totalNodes
+                && (totalNodes == 0 || stored[0].length >= this.candidateCount);
+
+        IntStream.range(0, totalNodes).parallel().forEach(nodeId -> {
+            candidateNeighbors[nodeId] = useStored
+                    ? Arrays.copyOf(stored[nodeId], this.candidateCount)
+                    : selectNearest(tree, nodeId, this.candidateCount);
+            sortedNeighbors[nodeId] = sortedCopy(candidateNeighbors[nodeId]);
+        });
     }
 
-    private void precomputeCandidates(Instance instance) {
-        for (Node node : instance.getNodes()) {
-            List<NodeDistance> distances = new ArrayList<>();
-            
-            for (Node other : instance.getNodes()) {
-                if (node.getId() != other.getId()) {
-                    double cost = instance.getDistance(node.getId(), other.getId()) + other.getCost();
-                    distances.add(new NodeDistance(other.getId(), cost));
-                }
-            }
+    // lists computed earlier, e.g. loaded from an artifact cache; rows are taken over
+    public CandidateEdges(int[][] candidateNeighbors) {
+        int totalNodes = candidateNeighbors.length;
+        this.candidateCount = totalNodes == 0 ? 0 : candidateNeighbors[0].length;
+        this.candidateNeighbors = candidateNeighbors;
+        this.sortedNeighbors = new int[totalNodes][];
+        IntStream.range(0, totalNodes).parallel()
+                .forEach(nodeId -> sortedNeighbors[nodeId] = sortedCopy(candidateNeighbors[nodeId]));
+    }
 
-            distances.sort(Comparator.comparingDouble(nd -> nd.distance));
-            List<Integer> nearest = new ArrayList<>();
-            int count = Math.min(candidateCount, distances.size());
-            for (int i = 0; i < count; i++) {
-                nearest.add(distances.get(i).nodeId);
-            }
-            
-            candidateNeighbors.put(node.getId(), nearest);
-        }
+    private static int[] sortedCopy(int[] row) {
+        int[] sorted = row.clone();
+        Arrays.sort(sorted);
+        return sorted;
     }
 
-    public List<Integer> getCandidateNeighbors(int nodeId) {
-        return candidateNeighbors.getOrDefault(nodeId, Collections.emptyList());
+    private static int[] selectNearest(KdTree tree, int nodeId, int count) {
+        int[] nearest = new int[count];
+        int found = tree.nearest(nodeId, count, null, nearest);
+        return found == count ? nearest : Arrays.copyOf(nearest, found);
     }
 
-    public boolean isCandidate(int nodeId1, int nodeId2) {
-        List<Integer> neighbors = candidateNeighbors.get(nodeId1);
-        return neighbors != null && neighbors.contains(nodeId2);
+    public int getCandidateCount() {
+        return candidateCount;
     }
 
-    public boolean isCandidateEdge(int nodeId1, int nodeId2) {
-        return isCandidate(nodeId1, nodeId2) || isCandidate(nodeId2, nodeId1);
+    // closest first, the array is shared and must not be modified
+    public int[] getCandidateNeighbors(int nodeId) {
+        return candidateNeighbors[nodeId];
     }
 
-    private static class NodeDistance {
-        final int nodeId;
-        final double distance;
+    public boolean isCandidate(int nodeId1, int nodeId2) {
+        return Arrays.binarySearch(sortedNeighbors[nodeId1], nodeId2) >= 0;
+    }
 
-        NodeDistance(int nodeId, double distance) {
-            this.nodeId = nodeId;
-            this.distance = distance;
-        }
+    public boolean isCandidateEdge(int nodeId1, int nodeId2) {
+        return isCandidate(nodeId1, nodeId2) || isCandidate(nodeId2, nodeId1);
     }
 }
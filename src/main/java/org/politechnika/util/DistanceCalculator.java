@@ -1,6 +1,9 @@
 package org.politechnika.util;
 
 import org.politechnika.model.Node;
+import org.politechnika.model.distance.DistanceMatrices;
+import org.politechnika.model.distance.DistanceMatrix;
+import org.politechnika.model.distance.DistanceStorage;
 
 import java.util.List;
 
@@ -8,26 +11,22 @@ import java.util.List;
 public class DistanceCalculator {
 
     public static int calculateDistance(Node node1, Node node2) {
-        double dx = node1.getX() - node2.getX();
-        double dy = node1.getY() - node2.getY();
+        return calculateDistance(node1.getX(), node1.getY(), node2.getX(), node2.getY());
+    }
+
+    public static int calculateDistance(double x1, double y1, double x2, double y2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
         double distance = Math.sqrt(dx * dx + dy * dy);
         return (int) Math.round(distance);
     }
 
-    public static int[][] buildDistanceMatrix(List<Node> nodes) {
-        int n = nodes.size();
-        int[][] matrix = new int[n][n];
-
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                if (i == j) {
-                    matrix[i][j] = 0;
-                } else {
-                    matrix[i][j] = calculateDistance(nodes.get(i), nodes.get(j));
-                }
-            }
-        }
-
-        return matrix;
+    // layout chosen from the coordinate range and size
+    public static DistanceMatrix buildDistanceMatrix(List<Node> nodes) {
+        return DistanceMatrices.build(nodes, DistanceStorage.AUTO);
+    }
+
+    public static DistanceMatrix buildDistanceMatrix(List<Node> nodes, DistanceStorage storage) {
+        return DistanceMatrices.build(nodes, storage);
     }
 }
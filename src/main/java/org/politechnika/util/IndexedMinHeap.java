@@ -0,0 +1,89 @@
+package org.politechnika.util;
+
+import java.util.Arrays;
+
+
+/**
+ * Binary min-heap of ids ordered by score and then by id, with the position of every id kept so
+ * scores can be changed in O(log n).
+ */
+public class IndexedMinHeap {
+    private final int[] heap;
+    private final int[] index;
+    private final double[] score;
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.index = new int[capacity];
+        this.score = new double[capacity];
+        Arrays.fill(index, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // inserts the id or changes its score
+    public void update(int id, double value) {
+        if (index[id] < 0) {
+            heap[size] = id;
+            index[id] = size;
+            score[id] = value;
+            siftUp(size++);
+            return;
+        }
+        double old = score[id];
+        score[id] = value;
+        if (value < old) {
+            siftUp(index[id]);
+        } else {
+            siftDown(index[id]);
+        }
+    }
+
+    public int poll() {
+        int id = heap[0];
+        index[id] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            index[last] = 0;
+            siftDown(0);
+        }
+        return id;
+    }
+
+    private boolean less(int a, int b) {
+        return score[a] < score[b] || (score[a] == score[b] && a < b);
+    }
+
+    private void siftUp(int at) {
+        int id = heap[at];
+        while (at > 0) {
+            int parent = (at - 1) >>> 1;
+            if (!less(id, heap[parent])) break;
+            heap[at] = heap[parent];
+            index[heap[at]] = at;
+            at = parent;
+        }
+        heap[at] = id;
+        index[id] = at;
+    }
+
+    private void siftDown(int at) {
+        int id = heap[at];
+        while (true) {
+            int child = 2 * at + 1;
+            if (child >= size) break;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) child++;
+            if (!less(heap[child], id)) break;
+            heap[at] = heap[child];
+            index[heap[at]] = at;
+            at = child;
+        }
+        heap[at] = id;
+        index[id] = at;
+    }
+}
@@ -0,0 +1,259 @@
+package org.politechnika.util;
+
+import org.politechnika.model.Instance;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+
+/**
+ * 2-d tree answering cost-aware neighbor queries, the score of a node seen from another is their
+ * distance plus its cost. Results are ordered by (score, node id) like a linear scan with strict
+ * comparisons, subtrees are pruned by the distance to their bounding box plus their smallest node
+ * cost.
+ * <p>
+ * The tree is immutable and shared per instance, constructions that remove nodes as they go use a
+ * {@link Mask}.
+ */
+public class KdTree {
+    private static final int LEAF_SIZE = 8;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] costs;
+    private final int[] points;
+    private final int[] leafOf;
+    private final int[] from;
+    private final int[] to;
+    private final double[] minX;
+    private final double[] maxX;
+    private final double[] minY;
+    private final double[] maxY;
+    private final int[] minCost;
+
+    public KdTree(Instance instance) {
+        this.xs = instance.getXs();
+        this.ys = instance.getYs();
+        this.costs = instance.getCosts();
+        int totalNodes = costs.length;
+
+        int leaves = 1;
+        while ((long) leaves * LEAF_SIZE < totalNodes) leaves <<= 1;
+        int treeSize = 2 * leaves;
+        this.points = new int[totalNodes];
+        this.leafOf = new int[totalNodes];
+        this.from = new int[treeSize];
+        this.to = new int[treeSize];
+        this.minX = new double[treeSize];
+        this.maxX = new double[treeSize];
+        this.minY = new double[treeSize];
+        this.maxY = new double[treeSize];
+        this.minCost = new int[treeSize];
+        Arrays.fill(minCost, Integer.MAX_VALUE);
+        for (int i = 0; i < totalNodes; i++) points[i] = i;
+        if (totalNodes > 0) build(0, 0, totalNodes);
+    }
+
+    public static KdTree of(Instance instance) {
+        return instance.getArtifact("kd-tree", KdTree::new);
+    }
+
+    private void build(int node, int start, int end) {
+        from[node] = start;
+        to[node] = end;
+        double lowX = Double.POSITIVE_INFINITY, highX = Double.NEGATIVE_INFINITY;
+        double lowY = Double.POSITIVE_INFINITY, highY = Double.NEGATIVE_INFINITY;
+        int lowCost = Integer.MAX_VALUE;
+        for (int i = start; i < end; i++) {
+            int id = points[i];
+            lowX = Math.min(lowX, xs[id]);
+            highX = Math.max(highX, xs[id]);
+            lowY = Math.min(lowY, ys[id]);
+            highY = Math.max(highY, ys[id]);
+            lowCost = Math.min(lowCost, costs[id]);
+        }
+        minX[node] = lowX;
+        maxX[node] = highX;
+        minY[node] = lowY;
+        maxY[node] = highY;
+        minCost[node] = lowCost;
+
+        if (end - start <= LEAF_SIZE) {
+            for (int i = start; i < end; i++) leafOf[points[i]] = node;
+            return;
+        }
+        int middle = (start + end) >>> 1;
+        select(start, end, middle, highX - lowX >= highY - lowY ? xs : ys);
+        build(2 * node + 1, start, middle);
+        build(2 * node + 2, middle, end);
+    }
+
+    // ties by id so the tree does not depend on input order
+    private void select(int start, int end, int k, double[] coordinate) {
+        int low = start, high = end - 1;
+        while (low < high) {
+            int pivot = points[(low + high) >>> 1];
+            int i = low, j = high;
+            while (i <= j) {
+                while (before(points[i], pivot, coordinate)) i++;
+                while (before(pivot, points[j], coordinate)) j--;
+                if (i <= j) {
+                    int swap = points[i];
+                    points[i++] = points[j];
+                    points[j--] = swap;
+                }
+            }
+            if (k <= j) high = j;
+            else if (k >= i) low = i;
+            else return;
+        }
+    }
+
+    private static boolean before(int a, int b, double[] coordinate) {
+        return coordinate[a] < coordinate[b] || (coordinate[a] == coordinate[b] && a < b);
+    }
+
+    // nodes still available to a construction, removing one updates the cost bounds above it
+    public final class Mask {
+        private final boolean[] removed = new boolean[costs.length];
+        private final int[] aliveMinCost = minCost.clone();
+
+        public boolean isAlive(int nodeId) {
+            return !removed[nodeId];
+        }
+
+        public void remove(int nodeId) {
+            if (removed[nodeId]) return;
+            removed[nodeId] = true;
+            int node = leafOf[nodeId];
+            int lowest = Integer.MAX_VALUE;
+            for (int i = from[node]; i < to[node]; i++) {
+                if (!removed[points[i]]) lowest = Math.min(lowest, costs[points[i]]);
+            }
+            aliveMinCost[node] = lowest;
+            while (node > 0) {
+                node = (node - 1) >>> 1;
+                aliveMinCost[node] = Math.min(aliveMinCost[2 * node + 1], aliveMinCost[2 * node + 2]);
+            }
+        }
+    }
+
+    public Mask newMask() {
+        return new Mask();
+    }
+
+    // best node other than nodeId by distance plus cost or -1, a null mask means all nodes
+    public int nearest(int nodeId, Mask mask) {
+        int[] out = new int[1];
+        return nearest(nodeId, 1, mask, out) == 0 ? -1 : out[0];
+    }
+
+    // the k best nodes best first, returns their number
+    public int nearest(int nodeId, int k, Mask mask, int[] out) {
+        if (k <= 0 || points.length == 0) return 0;
+        Search search = new Search(nodeId, k, mask);
+        search.visit(0);
+        Arrays.sort(search.heap, 0, search.size);
+        for (int i = 0; i < search.size; i++) {
+            out[i] = (int) search.heap[i];
+        }
+        return search.size;
+    }
+
+    // every node whose score is at most maxScore, in no particular order
+    public void withinScore(int nodeId, long maxScore, Mask mask, IntConsumer action) {
+        if (points.length > 0) withinScore(0, nodeId, maxScore, mask, action);
+    }
+
+    private void withinScore(int node, int nodeId, long maxScore, Mask mask, IntConsumer action) {
+        if (lowerBound(node, xs[nodeId], ys[nodeId], mask) > maxScore) return;
+        if (to[node] - from[node] <= LEAF_SIZE) {
+            for (int i = from[node]; i < to[node]; i++) {
+                int other = points[i];
+                if (other == nodeId || (mask != null && !mask.isAlive(other))) continue;
+                if (score(nodeId, other) <= maxScore) action.accept(other);
+            }
+            return;
+        }
+        withinScore(2 * node + 1, nodeId, maxScore, mask, action);
+        withinScore(2 * node + 2, nodeId, maxScore, mask, action);
+    }
+
+    private long score(int nodeId, int other) {
+        return DistanceCalculator.calculateDistance(xs[nodeId], ys[nodeId], xs[other], ys[other]) + (long) costs[other];
+    }
+
+    // distances are rounded like for points, so the bound never exceeds a real score
+    private long lowerBound(int node, double x, double y, Mask mask) {
+        int cost = mask == null ? minCost[node] : mask.aliveMinCost[node];
+        if (cost == Integer.MAX_VALUE) return Long.MAX_VALUE;
+        double dx = Math.max(0, Math.max(minX[node] - x, x - maxX[node]));
+        double dy = Math.max(0, Math.max(minY[node] - y, y - maxY[node]));
+        return Math.round(Math.sqrt(dx * dx + dy * dy)) + (long) cost;
+    }
+
+    // depth-first search keeping the k best (score, id) keys in a max-heap
+    private final class Search {
+        private final int nodeId;
+        private final double x;
+        private final double y;
+        private final int k;
+        private final Mask mask;
+        private final long[] heap;
+        private int size;
+
+        Search(int nodeId, int k, Mask mask) {
+            this.nodeId = nodeId;
+            this.x = xs[nodeId];
+            this.y = ys[nodeId];
+            this.k = k;
+            this.mask = mask;
+            this.heap = new long[k];
+        }
+
+        void visit(int node) {
+            long bound = lowerBound(node, x, y, mask);
+            // equal bounds are visited, a smaller id may still win the tie
+            if (bound == Long.MAX_VALUE || (size == k && bound > (heap[0] >>> 32))) return;
+            if (to[node] - from[node] <= LEAF_SIZE) {
+                for (int i = from[node]; i < to[node]; i++) {
+                    int other = points[i];
+                    if (other == nodeId || (mask != null && !mask.isAlive(other))) continue;
+                    offer((score(nodeId, other) << 32) | other);
+                }
+                return;
+            }
+            int left = 2 * node + 1;
+            int right = 2 * node + 2;
+            if (lowerBound(right, x, y, mask) < lowerBound(left, x, y, mask)) {
+                visit(right);
+                visit(left);
+            } else {
+                visit(left);
+                visit(right);
+            }
+        }
+
+        private void offer(long key) {
+            if (size < k) {
+                int index = size++;
+                while (index > 0 && heap[(index - 1) >>> 1] < key) {
+                    heap[index] = heap[(index - 1) >>> 1];
+                    index = (index - 1) >>> 1;
+                }
+                heap[index] = key;
+            } else if (key < heap[0]) {
+                int index = 0;
+                while (true) {
+                    int child = 2 * index + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && heap[child + 1] > heap[child]) child++;
+                    if (heap[child] <= key) break;
+                    heap[index] = heap[child];
+                    index = child;
+                }
+                heap[index] = key;
+            }
+        }
+    }
+}
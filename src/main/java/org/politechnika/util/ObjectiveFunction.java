@@ -1,6 +1,7 @@
 package org.politechnika.util;
 
 import org.politechnika.model.Instance;
+import org.politechnika.model.Tour;
 
 import java.util.List;
 
@@ -16,7 +17,7 @@ public class ObjectiveFunction {
         double totalCost = 0;
 
         for (int nodeId : nodeIds) {
-            totalCost += instance.getNode(nodeId).getCost();
+            totalCost += instance.getCost(nodeId);
         }
 
         for (int i = 0; i < nodeIds.size(); i++) {
@@ -28,9 +29,26 @@ public class ObjectiveFunction {
         return totalDistance + totalCost;
     }
 
+    // cycle length over the cost-folded edge weights
+    public static double calculate(Instance instance, Tour tour) {
+        int size = tour.size();
+        if (size == 0) {
+            return 0;
+        }
+
+        double total = 0;
+        int prevNode = tour.getNodeAt(size - 1);
+        for (int i = 0; i < size; i++) {
+            int node = tour.getNodeAt(i);
+            total += instance.getFoldedDistance(prevNode, node);
+            prevNode = node;
+        }
+        return total;
+    }
+
     public static double calculateInsertionCost(Instance instance, List<Integer> currentPath, 
                                                  int newNodeId, int position) {
-        double cost = instance.getNode(newNodeId).getCost();
+        double cost = instance.getCost(newNodeId);
 
         if (currentPath.isEmpty()) {
             return cost;
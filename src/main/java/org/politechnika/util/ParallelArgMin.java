@@ -0,0 +1,80 @@
+package org.politechnika.util;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+
+/**
+ * Id with the smallest score as the sequential scans of the constructions find it: a score must be
+ * strictly smaller than the best so far, so ties go to the smallest id. The parallel version merges
+ * the partial results of the ForkJoin pool with the same rule and returns the same id.
+ */
+public final class ParallelArgMin {
+
+    // splitting smaller ranges costs more than it saves
+    public static final int PARALLEL_THRESHOLD = 4096;
+    private static final int LEAF_SIZE = 1024;
+
+    private ParallelArgMin() {
+    }
+
+    // -1 if no included id scores below MAX_VALUE
+    public static int argMin(int size, IntPredicate include, IntToDoubleFunction score, boolean parallel) {
+        if (!parallel || size < PARALLEL_THRESHOLD) {
+            return scan(0, size, include, score).id;
+        }
+        return new ScanTask(0, size, include, score).invoke().id;
+    }
+
+    private record Best(double score, int id) {
+        Best min(Best other) {
+            return other.score < score ? other : this;
+        }
+    }
+
+    private static Best scan(int from, int to, IntPredicate include, IntToDoubleFunction score) {
+        int bestId = -1;
+        double bestScore = Double.MAX_VALUE;
+        for (int id = from; id < to; id++) {
+            if (!include.test(id)) {
+                continue;
+            }
+            double value = score.applyAsDouble(id);
+            if (value < bestScore) {
+                bestScore = value;
+                bestId = id;
+            }
+        }
+        return new Best(bestScore, bestId);
+    }
+
+    // tasks only live on the pool, they are never serialized
+    @SuppressWarnings("serial")
+    private static final class ScanTask extends RecursiveTask<Best> {
+        private final int from;
+        private final int to;
+        private final IntPredicate include;
+        private final IntToDoubleFunction score;
+
+        ScanTask(int from, int to, IntPredicate include, IntToDoubleFunction score) {
+            this.from = from;
+            this.to = to;
+            this.include = include;
+            this.score = score;
+        }
+
+        @Override
+        protected Best compute() {
+            if (to - from <= LEAF_SIZE) {
+                return scan(from, to, include, score);
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask right = new ScanTask(middle, to, include, score);
+            right.fork();
+            Best left = new ScanTask(from, middle, include, score).compute();
+            // the left half holds the smaller ids, it wins ties
+            return left.min(right.join());
+        }
+    }
+}
@@ -34,7 +34,8 @@ public class SolutionVisualizer extends JPanel {
         double minX = Double.MAX_VALUE, maxX = Double.MIN_VALUE;
         double minY = Double.MAX_VALUE, maxY = Double.MIN_VALUE;
 
-        for (Node node : instance.getNodes()) {
+        List<Node> nodes = instance.getNodes();
+        for (Node node : nodes) {
             minX = Math.min(minX, node.getX());
             maxX = Math.max(maxX, node.getX());
             minY = Math.min(minY, node.getY());
@@ -51,13 +52,13 @@ public class SolutionVisualizer extends JPanel {
         g2d.drawString(instance.getName() + " - " + solution.getAlgorithmName(), 10, 20);
         g2d.drawString(String.format("Objective: %.2f", solution.getObjectiveValue()), 10, 40);
 
-        int maxCost = instance.getNodes().stream()
+        int maxCost = nodes.stream()
                 .mapToInt(Node::getCost)
                 .max()
                 .orElse(1);
 
-        List<Integer> selectedNodes = solution.getNodeIds();
-        for (Node node : instance.getNodes()) {
+        List<Integer> selectedNodes = solution.getNodeIdsReadOnly();
+        for (Node node : nodes) {
             double x = PADDING + (node.getX() - minX) * scale;
             double y = getHeight() - PADDING - (node.getY() - minY) * scale;
             float ratio = (float) node.getCost() / maxCost;